@@ -0,0 +1,213 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.IStoredSettings;
+import com.gitblit.plugin.slack.RetryPolicy.ErrorClass;
+
+/**
+ * Circuit breaker for the webhook of a destination.
+ *
+ * The circuit opens after a run of consecutive network or server failures.
+ * While it is open sends fail fast and messages stay in the outbox.  When the
+ * open period has elapsed the circuit is half-open and a single probe is
+ * allowed through: success closes the circuit, failure opens it again for
+ * twice as long, up to a maximum.
+ */
+class CircuitBreaker {
+
+	enum State {
+		CLOSED, OPEN, HALF_OPEN;
+
+		@Override
+		public String toString() {
+			return name().toLowerCase().replace('_', '-');
+		}
+	}
+
+	final Logger log = LoggerFactory.getLogger(getClass());
+
+	final String name;
+
+	final int failureThreshold;
+
+	final long openTimeout;
+
+	final long maxOpenTimeout;
+
+	private State state;
+
+	private int failures;
+
+	private long openUntil;
+
+	private long currentTimeout;
+
+	private boolean probing;
+
+	private long trips;
+
+	private long rejected;
+
+	CircuitBreaker(String name, int failureThreshold, long openTimeout, long maxOpenTimeout) {
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openTimeout = Math.max(1, openTimeout);
+		this.maxOpenTimeout = Math.max(this.openTimeout, maxOpenTimeout);
+		this.state = State.CLOSED;
+		this.currentTimeout = this.openTimeout;
+	}
+
+	/**
+	 * Reads the circuit breaker settings.  A failure threshold of 0 disables
+	 * the circuit breaker.
+	 *
+	 * @param settings
+	 * @param name the destination name
+	 * @return a circuit breaker
+	 */
+	static CircuitBreaker of(IStoredSettings settings, String name) {
+		int threshold = settings.getInteger(Plugin.SETTING_CIRCUIT_FAILURE_THRESHOLD, 5);
+		int openTimeout = settings.getInteger(Plugin.SETTING_CIRCUIT_OPEN_TIMEOUT, 30);
+		int maxOpenTimeout = settings.getInteger(Plugin.SETTING_CIRCUIT_MAX_OPEN_TIMEOUT, 300);
+		return new CircuitBreaker(name, threshold, TimeUnit.SECONDS.toMillis(openTimeout),
+				TimeUnit.SECONDS.toMillis(maxOpenTimeout));
+	}
+
+	/**
+	 * Returns true if a request may be sent now.  When the open period has
+	 * elapsed the first caller becomes the half-open probe.
+	 *
+	 * @return true if the request may be sent
+	 */
+	synchronized boolean allowRequest() {
+		switch (state) {
+		case OPEN:
+			if (System.currentTimeMillis() < openUntil) {
+				rejected++;
+				return false;
+			}
+			state = State.HALF_OPEN;
+			probing = true;
+			log.info("Circuit for {} is half-open, sending a probe", name);
+			return true;
+		case HALF_OPEN:
+			if (probing) {
+				rejected++;
+				return false;
+			}
+			probing = true;
+			return true;
+		case CLOSED:
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Returns true while the circuit is open and no probe is due.
+	 *
+	 * @return true if sends would fail fast
+	 */
+	synchronized boolean isOpen() {
+		return State.OPEN == state && System.currentTimeMillis() < openUntil;
+	}
+
+	/**
+	 * Returns the msecs until a probe may be sent.
+	 *
+	 * @return the remaining open time, or 0
+	 */
+	synchronized long getRemainingOpenTime() {
+		if (State.CLOSED == state) {
+			return 0;
+		}
+		return Math.max(0, openUntil - System.currentTimeMillis());
+	}
+
+	/**
+	 * Records a response from the webhook.
+	 */
+	synchronized void onSuccess() {
+		failures = 0;
+		probing = false;
+		currentTimeout = openTimeout;
+		if (State.CLOSED != state) {
+			state = State.CLOSED;
+			log.info("Circuit for {} is closed", name);
+		}
+	}
+
+	/**
+	 * Records a failed send.  Only network failures and server errors count
+	 * against the webhook; a rejected or rate limited payload proves that the
+	 * webhook is up.
+	 *
+	 * @param e
+	 */
+	synchronized void onFailure(IOException e) {
+		ErrorClass errorClass = ErrorClass.of(e);
+		if (ErrorClass.NETWORK != errorClass && ErrorClass.SERVER_ERROR != errorClass) {
+			onSuccess();
+			return;
+		}
+		failures++;
+		if (State.HALF_OPEN == state) {
+			currentTimeout = Math.min(maxOpenTimeout, currentTimeout * 2);
+			trip();
+		} else if (State.CLOSED == state && failureThreshold > 0 && failures >= failureThreshold) {
+			trip();
+		}
+	}
+
+	/**
+	 * Releases the probe of a send which ended without a result.
+	 */
+	synchronized void onAbort() {
+		probing = false;
+	}
+
+	private void trip() {
+		state = State.OPEN;
+		probing = false;
+		openUntil = System.currentTimeMillis() + currentTimeout;
+		trips++;
+		log.warn("Circuit for {} is open after {} consecutive failures, failing fast for {} msecs",
+				name, failures, currentTimeout);
+	}
+
+	synchronized State getState() {
+		return state;
+	}
+
+	synchronized int getFailures() {
+		return failures;
+	}
+
+	synchronized long getTrips() {
+		return trips;
+	}
+
+	synchronized long getRejected() {
+		return rejected;
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A per-repository cache of commit ranges and commit summaries.
+ *
+ * Commit ids are immutable so cached entries never become stale, they are
+ * only evicted when a repository cache is full.
+ */
+class CommitCache {
+
+	final int maxRanges;
+
+	final int maxSummaries;
+
+	final Map<String, Summaries> repositories;
+
+	CommitCache(int maxRanges, int maxSummaries) {
+		this.maxRanges = Math.max(1, maxRanges);
+		this.maxSummaries = Math.max(1, maxSummaries);
+		this.repositories = new HashMap<String, Summaries>();
+	}
+
+	/**
+	 * Returns the cache for a repository.
+	 *
+	 * @param repository
+	 * @return the repository cache
+	 */
+	synchronized Summaries get(String repository) {
+		Summaries cache = repositories.get(repository);
+		if (cache == null) {
+			cache = new Summaries(maxRanges, maxSummaries);
+			repositories.put(repository, cache);
+		}
+		return cache;
+	}
+
+	/**
+	 * Removes the cache of a repository.
+	 *
+	 * @param repository
+	 */
+	synchronized void invalidate(String repository) {
+		repositories.remove(repository);
+	}
+
+	/**
+	 * The cached commit ranges and commit summaries of one repository.
+	 */
+	static class Summaries {
+
+		final Map<String, CommitRange> ranges;
+
+		final Map<String, CommitSummary> summaries;
+
+		Summaries(int maxRanges, int maxSummaries) {
+			this.ranges = new Lru<CommitRange>(maxRanges);
+			this.summaries = new Lru<CommitSummary>(maxSummaries);
+		}
+
+		synchronized CommitRange getRange(String baseId, String tipId, int max) {
+			return ranges.get(key(baseId, tipId, max));
+		}
+
+		synchronized void putRange(String baseId, String tipId, int max, CommitRange range) {
+			ranges.put(key(baseId, tipId, max), range);
+		}
+
+		synchronized CommitSummary get(String id) {
+			return summaries.get(id);
+		}
+
+		synchronized void put(CommitSummary summary) {
+			summaries.put(summary.id, summary);
+		}
+
+		private String key(String baseId, String tipId, int max) {
+			return baseId + ".." + tipId + "/" + max;
+		}
+	}
+
+	private static class Lru<V> extends LinkedHashMap<String, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		final int maxSize;
+
+		Lru(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+			return size() > maxSize;
+		}
+	}
+}
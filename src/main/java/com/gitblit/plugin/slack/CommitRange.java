@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * The commits between two commit ids, limited to the few commits which are
+ * listed in a message and the total count.
+ */
+class CommitRange {
+
+	final List<CommitSummary> commits;
+
+	final int total;
+
+	/**
+	 * True if the walk stopped at the walk limit, total is then a lower bound.
+	 */
+	final boolean capped;
+
+	CommitRange(List<CommitSummary> commits, int total, boolean capped) {
+		this.commits = Collections.unmodifiableList(commits);
+		this.total = total;
+		this.capped = capped;
+	}
+
+	/**
+	 * Returns the range followed by a newer range, listing the newest
+	 * commits first.
+	 *
+	 * @param newer
+	 * @param max the number of commits to list
+	 * @return the combined range
+	 */
+	CommitRange append(CommitRange newer, int max) {
+		List<CommitSummary> merged = new ArrayList<CommitSummary>(newer.commits);
+		merged.addAll(commits);
+		if (merged.size() > max) {
+			merged = new ArrayList<CommitSummary>(merged.subList(0, max));
+		}
+		return new CommitRange(merged, total + newer.total, capped || newer.capped);
+	}
+
+	/**
+	 * Returns the number of commits as text, e.g. "1 commit", "5 commits" or
+	 * "10000+ commits".
+	 *
+	 * @return the number of commits
+	 */
+	String getCountText() {
+		if (total == 1 && !capped) {
+			return "1 commit";
+		}
+		return String.format("%d%s commits", total, capped ? "+" : "");
+	}
+
+	/**
+	 * Walks the commits reachable from tip and not from base.  Only the
+	 * listed commits are retained, the remaining commits are counted.
+	 * Commit bodies are only parsed for the listed commits.
+	 *
+	 * The walk is in commit time order, which streams, so it stops at the
+	 * limit without reading the rest of the range.  The oldest commits are
+	 * the last ones of the walk and are kept in a ring buffer, so listing them
+	 * needs neither a second walk nor a topological sort, which would buffer
+	 * the whole range.  They are ordered by commit time, which only differs
+	 * from the topological order if committer clocks were skewed.  A range
+	 * beyond the limit lists its newest commits instead.
+	 *
+	 * @param walk
+	 * @param baseId
+	 * @param tipId
+	 * @param max the number of commits to list
+	 * @param oldestFirst true to list the oldest commits, oldest first,
+	 *        false to list the newest commits, newest first
+	 * @param cache the commit summary cache, may be null
+	 * @param limit the maximum number of commits to walk, 0 for no limit
+	 * @return the commit range
+	 * @throws IOException
+	 */
+	static CommitRange walk(RevWalk walk, AnyObjectId baseId, AnyObjectId tipId, int max,
+			boolean oldestFirst, CommitCache.Summaries cache, int limit) throws IOException {
+		boolean retainBody = walk.isRetainBody();
+		try {
+			walk.setRetainBody(false);
+			start(walk, baseId, tipId, RevSort.COMMIT_TIME_DESC);
+
+			RevCommit [] kept = new RevCommit[Math.max(1, max)];
+			RevCommit [] last = oldestFirst ? new RevCommit[kept.length] : null;
+			int total = 0;
+			boolean capped = false;
+			RevCommit c;
+			while ((c = walk.next()) != null) {
+				if (limit > 0 && total == limit) {
+					// count-only walks of huge imports stop here
+					capped = true;
+					break;
+				}
+				if (total < kept.length) {
+					kept[total] = c;
+				}
+				if (last != null) {
+					last[total % last.length] = c;
+				}
+				total++;
+			}
+
+			int count = Math.min(max, total);
+			if (oldestFirst && !capped) {
+				// the oldest commit is the last one walked
+				RevCommit [] oldest = new RevCommit[kept.length];
+				for (int i = 0; i < count; i++) {
+					oldest[i] = last[(total - 1 - i) % last.length];
+				}
+				kept = oldest;
+			}
+
+			List<CommitSummary> commits = new ArrayList<CommitSummary>(count);
+			for (int i = 0; i < count; i++) {
+				RevCommit commit = kept[i];
+				CommitSummary summary = cache == null ? null : cache.get(commit.getName());
+				if (summary == null) {
+					walk.parseBody(commit);
+					summary = CommitSummary.of(commit);
+					if (cache != null) {
+						cache.put(summary);
+					}
+				}
+				commits.add(summary);
+			}
+			return new CommitRange(commits, total, capped);
+		} finally {
+			walk.reset();
+			walk.setRetainBody(retainBody);
+		}
+	}
+
+	private static void start(RevWalk walk, AnyObjectId baseId, AnyObjectId tipId, RevSort sort) throws IOException {
+		walk.reset();
+		walk.sort(sort);
+		walk.markStart(walk.parseCommit(tipId));
+		walk.markUninteresting(walk.parseCommit(baseId));
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import com.gitblit.Constants;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * The parts of a commit which are rendered in a Slack message.
+ */
+class CommitSummary {
+
+	final String id;
+
+	final String shortMessage;
+
+	CommitSummary(String id, String shortMessage) {
+		this.id = id;
+		this.shortMessage = shortMessage;
+	}
+
+	static CommitSummary of(RevCommit commit) {
+		return new CommitSummary(commit.getName(),
+				StringUtils.trimString(commit.getShortMessage(), Constants.LEN_SHORTLOG));
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.List;
+
+import com.gitblit.plugin.slack.entity.Attachment;
+import com.gitblit.plugin.slack.entity.Payload;
+
+/**
+ * Suppresses identical messages within a time window.
+ *
+ * Messages are identified by a 64-bit hash of their channel, text and
+ * attachments.  Recent hashes are kept in a fixed-size open-addressed table;
+ * an insert overwrites the oldest entry of its probe sequence, so memory is
+ * bounded and entries older than the window simply expire.
+ */
+class Deduplicator {
+
+	private static final int PROBES = 8;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	final long window;
+
+	private final long [] hashes;
+
+	private final long [] times;
+
+	/**
+	 * @param capacity the number of recent messages to remember
+	 * @param window the window in msecs
+	 */
+	Deduplicator(int capacity, long window) {
+		int size = Integer.highestOneBit(Math.max(PROBES, capacity) - 1) << 1;
+		this.window = window;
+		this.hashes = new long[size];
+		this.times = new long[size];
+	}
+
+	/**
+	 * Records a message and returns true if an identical message was recorded
+	 * within the window.
+	 *
+	 * @param payload
+	 * @return true if the message is a duplicate
+	 */
+	boolean isDuplicate(Payload payload) {
+		return isDuplicate(hash(payload), System.currentTimeMillis());
+	}
+
+	synchronized boolean isDuplicate(long hash, long now) {
+		int mask = hashes.length - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		int victim = slot;
+		long oldest = Long.MAX_VALUE;
+		for (int i = 0; i < PROBES; i++) {
+			int index = (slot + i) & mask;
+			long time = times[index];
+			if (time != 0 && hashes[index] == hash && now - time < window) {
+				return true;
+			}
+			if (time < oldest) {
+				oldest = time;
+				victim = index;
+			}
+		}
+		hashes[victim] = hash;
+		times[victim] = now;
+		return false;
+	}
+
+	/**
+	 * Returns the FNV-1a hash of the channel, text and attachments of the
+	 * payload.
+	 *
+	 * @param payload
+	 * @return a 64-bit hash
+	 */
+	static long hash(Payload payload) {
+		long hash = FNV_OFFSET;
+		hash = hash(hash, payload.getChannel());
+		hash = hash(hash, payload.getText());
+		List<Attachment> attachments = payload.getAttachments();
+		if (attachments != null && !attachments.isEmpty()) {
+			hash = hash(hash, PayloadEntity.GSON.toJson(attachments));
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, String value) {
+		if (value != null) {
+			for (int i = 0; i < value.length(); i++) {
+				hash ^= value.charAt(i);
+				hash *= FNV_PRIME;
+			}
+		}
+		// separator, so "ab" + "c" differs from "a" + "bc"
+		hash ^= 0xff;
+		hash *= FNV_PRIME;
+		return hash;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import com.gitblit.plugin.slack.entity.Payload;
+
+/**
+ * A payload in flight between the outbox and the webhook of a destination.
+ */
+class Delivery {
+
+	final Destination destination;
+
+	final Payload payload;
+
+	/**
+	 * The event type of the message.
+	 */
+	final EventType type;
+
+	/**
+	 * The System.nanoTime() at which the delivery was queued.
+	 */
+	final long enqueued;
+
+	/**
+	 * The future of a submitted message, or null.
+	 */
+	final SendFuture future;
+
+	final long segment;
+
+	final int index;
+
+	int attempts;
+
+	boolean admitted;
+
+	Delivery(Destination destination, Payload payload, EventType type, SendFuture future, long segment, int index) {
+		this.destination = destination;
+		this.payload = payload;
+		this.type = type;
+		this.enqueued = System.nanoTime();
+		this.future = future;
+		this.segment = segment;
+		this.index = index;
+	}
+
+	@Override
+	public String toString() {
+		return destination + "/" + segment + ":" + index;
+	}
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.Constants;
+import com.gitblit.IStoredSettings;
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.plugin.slack.DispatchQueue.OverflowPolicy;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * A webhook which receives messages, e.g. a Slack workspace or a Mattermost
+ * instance.
+ *
+ * Each destination has its own outbox, dispatch queue, rate limiter and
+ * connection pool so a slow or failing destination does not hold up the
+ * others.  Routing rules select the repositories, projects and event types
+ * which are sent to the destination.
+ */
+class Destination {
+
+	/**
+	 * The name of the destination built from slack.url.
+	 */
+	static final String DEFAULT = "default";
+
+	final Logger log = LoggerFactory.getLogger(getClass());
+
+	final String name;
+
+	final String url;
+
+	final Boolean postJson;
+
+	final Set<EventType> events;
+
+	final List<Pattern> repositories;
+
+	final Set<String> projects;
+
+	final CircuitBreaker breaker;
+
+	volatile Outbox outbox;
+
+	volatile DispatchQueue queue;
+
+	volatile RateLimiter rateLimiter;
+
+	volatile CloseableHttpClient httpClient;
+
+	private PoolingHttpClientConnectionManager connectionManager;
+
+	Destination(String name, String url, Boolean postJson, Set<EventType> events,
+			List<Pattern> repositories, Set<String> projects, CircuitBreaker breaker) {
+		this.name = name;
+		this.url = url;
+		this.postJson = postJson;
+		this.events = events;
+		this.repositories = repositories;
+		this.projects = projects;
+		this.breaker = breaker;
+	}
+
+	/**
+	 * Reads the configured destinations.  The default destination, which
+	 * posts to slack.url and accepts all events, is included if slack.url is
+	 * set or if no other destinations are defined.
+	 *
+	 * @param settings
+	 * @return the destinations
+	 */
+	static List<Destination> load(IStoredSettings settings) {
+		List<Destination> list = new ArrayList<Destination>();
+		Set<String> names = new HashSet<String>();
+		List<String> configured = settings.getStrings(Plugin.SETTING_DESTINATIONS);
+		if (configured != null) {
+			for (String name : configured) {
+				name = name.trim().toLowerCase();
+				if (StringUtils.isEmpty(name) || DEFAULT.equals(name) || !names.add(name)) {
+					continue;
+				}
+				list.add(of(settings, name));
+			}
+		}
+
+		if (list.isEmpty() || !StringUtils.isEmpty(settings.getString(Plugin.SETTING_URL, null))) {
+			Set<EventType> all = Collections.unmodifiableSet(EnumSet.allOf(EventType.class));
+			List<Pattern> none = Collections.emptyList();
+			Set<String> any = Collections.emptySet();
+			list.add(0, new Destination(DEFAULT, null, null, all, none, any, CircuitBreaker.of(settings, DEFAULT)));
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	private static Destination of(IStoredSettings settings, String name) {
+		String prefix = Plugin.SETTING_DESTINATION_PREFIX + name + ".";
+		String url = settings.getString(prefix + "url", null);
+
+		String json = settings.getString(prefix + "postJson", null);
+		Boolean postJson = StringUtils.isEmpty(json) ? null : Boolean.valueOf(json.trim());
+
+		Set<EventType> events = EnumSet.noneOf(EventType.class);
+		List<String> eventNames = settings.getStrings(prefix + "events");
+		if (eventNames != null) {
+			for (String eventName : eventNames) {
+				EventType type = EventType.fromName(eventName.trim());
+				if (type != null) {
+					events.add(type);
+				}
+			}
+		}
+		if (events.isEmpty()) {
+			events = EnumSet.allOf(EventType.class);
+		}
+
+		List<Pattern> repositories = new ArrayList<Pattern>();
+		List<String> regexes = settings.getStrings(prefix + "repositories");
+		if (regexes != null) {
+			for (String regex : regexes) {
+				try {
+					repositories.add(Pattern.compile(regex.trim(), Pattern.CASE_INSENSITIVE));
+				} catch (PatternSyntaxException e) {
+					LoggerFactory.getLogger(Destination.class).error(
+							"Invalid repository pattern for Slack destination " + name, e);
+				}
+			}
+		}
+
+		Set<String> projects = new HashSet<String>();
+		List<String> projectNames = settings.getStrings(prefix + "projects");
+		if (projectNames != null) {
+			for (String project : projectNames) {
+				projects.add(project.trim().toLowerCase());
+			}
+		}
+
+		return new Destination(name, url, postJson, Collections.unmodifiableSet(events),
+				Collections.unmodifiableList(repositories), Collections.unmodifiableSet(projects),
+				CircuitBreaker.of(settings, name));
+	}
+
+	/**
+	 * Returns true if the destination accepts messages about the repository
+	 * and event type.  Destinations which are restricted to repositories or
+	 * projects do not accept messages which are not about a repository.
+	 *
+	 * @param repository the repository, may be null
+	 * @param type
+	 * @return true if the destination accepts the message
+	 */
+	boolean accepts(RepositoryModel repository, EventType type) {
+		if (repository == null) {
+			return accepts(null, null, type);
+		}
+		return accepts(repository.name, repository.projectPath, type);
+	}
+
+	/**
+	 * Returns true if the destination accepts messages about the repository
+	 * and event type.
+	 *
+	 * @param repository the repository name, may be null
+	 * @param project the project path of the repository, may be null
+	 * @param type
+	 * @return true if the destination accepts the message
+	 */
+	boolean accepts(String repository, String project, EventType type) {
+		if (!events.contains(type)) {
+			return false;
+		}
+		if (repositories.isEmpty() && projects.isEmpty()) {
+			return true;
+		}
+		if (repository == null) {
+			return false;
+		}
+		if (!projects.isEmpty()) {
+			if (projects.contains(project == null ? "" : project.toLowerCase())) {
+				return true;
+			}
+		}
+		for (Pattern pattern : repositories) {
+			if (pattern.matcher(repository).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the webhook url of the destination.
+	 *
+	 * @param config
+	 * @return the webhook url
+	 * @throws SlackException if the url is not defined
+	 */
+	String getUrl(SlackConfig config) throws SlackException {
+		if (url == null) {
+			if (StringUtils.isEmpty(config.url)) {
+				throw new SlackException(String.format("Could not send message to Slack because '%s' is not defined!", Plugin.SETTING_URL));
+			}
+			return config.url;
+		}
+		if (StringUtils.isEmpty(url)) {
+			throw new SlackException(String.format("Could not send message to %s because '%s' is not defined!",
+					name, Plugin.SETTING_DESTINATION_PREFIX + name + ".url"));
+		}
+		return url;
+	}
+
+	boolean isPostJson(SlackConfig config) {
+		return postJson == null ? config.postJson : postJson;
+	}
+
+	/**
+	 * Starts the connection pool, the outbox and the dispatch queue of the
+	 * destination.
+	 *
+	 * @param slacker
+	 * @param settings
+	 * @param outboxFolder
+	 */
+	synchronized void start(Slacker slacker, IStoredSettings settings, File outboxFolder) {
+		String threadName = DEFAULT.equals(name) ? "slack-dispatch" : "slack-" + name + "-dispatch";
+		ThreadFactory sendThreads = null;
+		int maxInFlight = settings.getInteger(Plugin.SETTING_MAX_IN_FLIGHT, 1000);
+		if (settings.getBoolean(Plugin.SETTING_VIRTUAL_THREADS, false)) {
+			sendThreads = VirtualThreads.newFactory(threadName.replace("dispatch", "send"));
+			if (sendThreads == null) {
+				log.info("Virtual threads are not supported by this JVM, {} sends on platform threads", name);
+			}
+		}
+
+		if (httpClient == null) {
+			int maxConnections = settings.getInteger(Plugin.SETTING_MAX_CONNECTIONS, 10);
+			int maxPerRoute = settings.getInteger(Plugin.SETTING_MAX_CONNECTIONS_PER_ROUTE, 5);
+			if (sendThreads != null) {
+				// every send in flight needs a connection, otherwise it times out in the pool
+				maxConnections = Math.max(maxConnections, maxInFlight);
+				maxPerRoute = Math.max(maxPerRoute, maxInFlight);
+			}
+			final int keepAlive = settings.getInteger(Plugin.SETTING_KEEP_ALIVE, 60);
+
+			connectionManager = new PoolingHttpClientConnectionManager(keepAlive, TimeUnit.SECONDS);
+			connectionManager.setMaxTotal(Math.max(1, maxConnections));
+			connectionManager.setDefaultMaxPerRoute(Math.max(1, Math.min(maxPerRoute, maxConnections)));
+
+			RequestConfig requestConfig = RequestConfig.custom()
+					.setConnectTimeout(5000)
+					.setSocketTimeout(5000)
+					.setConnectionRequestTimeout(5000)
+					.setStaleConnectionCheckEnabled(true)
+					.build();
+
+			httpClient = HttpClients.custom()
+					.setConnectionManager(connectionManager)
+					.setDefaultRequestConfig(requestConfig)
+					.setKeepAliveStrategy(new KeepAliveStrategy(keepAlive))
+					.setUserAgent(Constants.NAME + "/" + Constants.getVersion())
+					.build();
+
+			log.debug("Slack connection pool for {} started (max={}, maxPerRoute={}, keepAlive={}s)",
+					name, maxConnections, maxPerRoute, keepAlive);
+		}
+
+		if (outbox == null) {
+			// the default destination keeps its messages where they have always been
+			File folder = DEFAULT.equals(name) ? outboxFolder : new File(outboxFolder, name);
+			outbox = new Outbox(folder, this);
+			try {
+				int pending = outbox.open();
+				if (pending > 0) {
+					log.info("Recovered {} unsent {} messages from {}", pending, name, folder);
+				}
+			} catch (IOException e) {
+				log.error("Failed to open the Slack outbox " + folder, e);
+			}
+		}
+
+		if (queue == null) {
+			int workers = settings.getInteger(Plugin.SETTING_WORKER_THREADS, 2);
+			String overflow = settings.getString(Plugin.SETTING_QUEUE_OVERFLOW, "spill");
+			int blockTimeout = settings.getInteger(Plugin.SETTING_QUEUE_TIMEOUT, 5);
+
+			OverflowPolicy policy = OverflowPolicy.fromName(overflow);
+			queue = new DispatchQueue(slacker, threadName, settings, workers, policy,
+					TimeUnit.SECONDS.toMillis(blockTimeout));
+			if (sendThreads == null) {
+				log.debug("Slack dispatch queue for {} started (workers={}, overflow={})",
+						name, workers, policy);
+			} else {
+				queue.sendOn(sendThreads, maxInFlight);
+				log.info("Slack dispatch queue for {} sends on virtual threads (maxInFlight={}, overflow={})",
+						name, maxInFlight, policy);
+			}
+			queue.start();
+		}
+
+		if (rateLimiter == null) {
+			rateLimiter = new RateLimiter(settings);
+		}
+	}
+
+	synchronized void stop() {
+		if (queue != null) {
+			queue.stop();
+			queue = null;
+		}
+		if (outbox != null) {
+			outbox.close();
+			outbox = null;
+		}
+		rateLimiter = null;
+		if (httpClient != null) {
+			try {
+				httpClient.close();
+			} catch (IOException e) {
+				log.warn("Failed to close the connection pool of " + name, e);
+			}
+			httpClient = null;
+			connectionManager = null;
+		}
+	}
+
+	/**
+	 * Moves unacknowledged messages from the outbox into the dispatch queue
+	 * while there is room in the queue and the circuit is not open.
+	 */
+	void drain() {
+		Outbox box = outbox;
+		DispatchQueue dispatchQueue = queue;
+		if (box == null || dispatchQueue == null || breaker.isOpen()) {
+			return;
+		}
+		EventType [] types = EventType.values();
+		int [] room = new int[types.length];
+		boolean hasRoom = false;
+		for (EventType type : types) {
+			room[type.ordinal()] = dispatchQueue.getRemainingCapacity(type);
+			hasRoom |= room[type.ordinal()] > 0;
+		}
+		if (!hasRoom) {
+			return;
+		}
+		for (Delivery delivery : box.drain(room)) {
+			// never wait on the scheduler thread
+			if (!dispatchQueue.tryOffer(delivery)) {
+				box.release(delivery);
+			}
+		}
+	}
+
+	int getQueueDepth() {
+		DispatchQueue dispatchQueue = queue;
+		return dispatchQueue == null ? 0 : dispatchQueue.getDepth();
+	}
+
+	int getInFlight() {
+		DispatchQueue dispatchQueue = queue;
+		return dispatchQueue == null ? 0 : dispatchQueue.getInFlight();
+	}
+
+	int getOutboxPending() {
+		Outbox box = outbox;
+		return box == null ? 0 : box.getPending();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * Honors the Keep-Alive header of the response, if present, otherwise
+	 * pooled connections are kept alive for the configured duration.
+	 */
+	private static class KeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+		final long defaultKeepAlive;
+
+		KeepAliveStrategy(int keepAliveSeconds) {
+			this.defaultKeepAlive = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+		}
+
+		@Override
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+			HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+			while (it.hasNext()) {
+				HeaderElement he = it.nextElement();
+				if ("timeout".equalsIgnoreCase(he.getName()) && he.getValue() != null) {
+					try {
+						return Math.min(defaultKeepAlive, Long.parseLong(he.getValue()) * 1000);
+					} catch (NumberFormatException e) {
+						break;
+					}
+				}
+			}
+			return defaultKeepAlive;
+		}
+	}
+}
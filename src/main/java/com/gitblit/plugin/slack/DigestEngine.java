@@ -0,0 +1,591 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.IStoredSettings;
+import com.gitblit.plugin.slack.entity.Attachment;
+import com.gitblit.plugin.slack.entity.Payload;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * Rolls push and ticket events up into one digest message per channel and
+ * interval instead of one message per event.
+ *
+ * Events are aggregated in memory per channel and repository.  Only events
+ * which a destination accepts as digest messages are aggregated; the others
+ * are posted as usual.  The aggregates
+ * are periodically spilled to a JSON file, and reloaded on startup, so that a
+ * restart does not lose a digest.  When the interval of a channel ends its
+ * digest is sent with the commit counts, branches, top authors and tickets of
+ * each repository.  The repositories of a digest are routed like their
+ * events, so a destination only receives the repositories it accepts.
+ */
+class DigestEngine {
+
+	static final long HOURLY = TimeUnit.HOURS.toMillis(1);
+
+	static final long DAILY = TimeUnit.DAYS.toMillis(1);
+
+	static final int MAX_REPOSITORIES = 20;
+
+	static final int MAX_REFS = 5;
+
+	static final int MAX_AUTHORS = 3;
+
+	static final int MAX_TICKETS = 10;
+
+	/**
+	 * The channel name which matches every channel.
+	 */
+	static final String ALL = "*";
+
+	enum Action {
+		OPENED, CLOSED, UPDATED;
+
+		@Override
+		public String toString() {
+			return name().toLowerCase();
+		}
+	}
+
+	final Logger log = LoggerFactory.getLogger(getClass());
+
+	final Slacker slacker;
+
+	final File file;
+
+	final Map<String, Long> periods;
+
+	final Map<String, ChannelDigest> digests;
+
+	private boolean dirty;
+
+	DigestEngine(Slacker slacker, File file, Map<String, Long> periods) {
+		this.slacker = slacker;
+		this.file = file;
+		this.periods = periods;
+		this.digests = new TreeMap<String, ChannelDigest>();
+	}
+
+	/**
+	 * Reads the digest channels and loads the spilled digests.
+	 *
+	 * @param slacker
+	 * @param settings
+	 * @param file the spill file
+	 * @param destinations
+	 * @return the digest engine, or null if no channel receives digests
+	 */
+	static DigestEngine of(Slacker slacker, IStoredSettings settings, File file, List<Destination> destinations) {
+		Logger log = LoggerFactory.getLogger(DigestEngine.class);
+		long defaultPeriod = parsePeriod(settings.getString(Plugin.SETTING_DIGEST_INTERVAL, "daily"));
+		if (defaultPeriod <= 0) {
+			log.warn("Invalid {}, using daily digests", Plugin.SETTING_DIGEST_INTERVAL);
+			defaultPeriod = DAILY;
+		}
+
+		Map<String, Long> periods = new HashMap<String, Long>();
+		for (String entry : settings.getStrings(Plugin.SETTING_DIGEST_CHANNELS)) {
+			String channel = entry;
+			long period = defaultPeriod;
+			int colon = entry.lastIndexOf(':');
+			if (colon > 0) {
+				channel = entry.substring(0, colon);
+				period = parsePeriod(entry.substring(colon + 1));
+			}
+			String name = normalize(channel);
+			if (name == null || period <= 0) {
+				log.warn("Ignoring invalid {} entry \"{}\"", Plugin.SETTING_DIGEST_CHANNELS, entry);
+				continue;
+			}
+			periods.put(name, period);
+		}
+
+		if (periods.isEmpty()) {
+			return null;
+		}
+
+		boolean accepted = false;
+		for (Destination destination : destinations) {
+			accepted |= destination.events.contains(EventType.DIGEST);
+		}
+		if (!accepted) {
+			log.error("{} is set but no destination accepts {} messages, digests are disabled",
+					Plugin.SETTING_DIGEST_CHANNELS, EventType.DIGEST);
+			return null;
+		}
+
+		DigestEngine engine = new DigestEngine(slacker, file, periods);
+		engine.load();
+		return engine;
+	}
+
+	/**
+	 * Parses a digest interval: hourly, daily or a number of minutes.
+	 *
+	 * @param value
+	 * @return the interval in msecs, or -1 if the value is invalid
+	 */
+	static long parsePeriod(String value) {
+		if (StringUtils.isEmpty(value)) {
+			return -1;
+		}
+		String interval = value.trim().toLowerCase();
+		if ("hourly".equals(interval)) {
+			return HOURLY;
+		} else if ("daily".equals(interval)) {
+			return DAILY;
+		}
+		try {
+			int minutes = Integer.parseInt(interval);
+			return minutes > 0 ? TimeUnit.MINUTES.toMillis(minutes) : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns the lowercase channel name with its # prefix.
+	 *
+	 * @param channel
+	 * @return the channel name, or null if the channel is empty
+	 */
+	static String normalize(String channel) {
+		if (StringUtils.isEmpty(channel) || StringUtils.isEmpty(channel.trim())) {
+			return null;
+		}
+		String name = channel.trim().toLowerCase();
+		if (ALL.equals(name) || name.charAt(0) == '#' || name.charAt(0) == '@') {
+			return name;
+		}
+		return "#" + name;
+	}
+
+	/**
+	 * Returns the end of the interval which contains now.  Intervals are
+	 * aligned to local time, so hourly digests are sent on the hour and daily
+	 * digests at midnight.
+	 *
+	 * @param now
+	 * @param period
+	 * @return the end of the interval
+	 */
+	static long next(long now, long period) {
+		long offset = TimeZone.getDefault().getOffset(now);
+		return ((now + offset) / period + 1) * period - offset;
+	}
+
+	/**
+	 * Returns true if the events of the repository are added to the digest of
+	 * the channel instead of being posted.  This requires a destination which
+	 * accepts digest messages about the repository.
+	 *
+	 * @param channel the resolved channel, null for the default channel of the webhook
+	 * @param repository the repository name
+	 * @param project the project path of the repository, may be null
+	 * @return true if the events should be added to the digest
+	 */
+	boolean accepts(String channel, String repository, String project) {
+		return getPeriod(channel) > 0 && !slacker.route(repository, project, EventType.DIGEST).isEmpty();
+	}
+
+	private long getPeriod(String channel) {
+		String name = normalize(channel);
+		Long period = name == null ? null : periods.get(name);
+		if (period == null) {
+			period = periods.get(ALL);
+		}
+		return period == null ? 0 : period;
+	}
+
+	/**
+	 * Adds a ref change to the digest of a channel.
+	 *
+	 * @param channel the resolved channel
+	 * @param repository
+	 * @param project the project path of the repository
+	 * @param url the repository url
+	 * @param author the display name of the pusher
+	 * @param ref the short ref name
+	 * @param tag true if the ref is a tag
+	 * @param commits the number of pushed commits
+	 */
+	synchronized void addPush(String channel, String repository, String project, String url, String author,
+			String ref, boolean tag, int commits) {
+		RepositoryDigest digest = getDigest(channel, repository, project, url);
+		if (tag) {
+			digest.tags.add(ref);
+		} else {
+			digest.branches.add(ref);
+		}
+		digest.commits += commits;
+		Integer count = digest.authors.get(author);
+		digest.authors.put(author, (count == null ? 0 : count) + commits);
+		dirty = true;
+	}
+
+	/**
+	 * Adds a ticket event to the digest of a channel.
+	 *
+	 * @param channel the resolved channel
+	 * @param repository
+	 * @param project the project path of the repository
+	 * @param url the repository url
+	 * @param number
+	 * @param title
+	 * @param ticketUrl
+	 * @param action
+	 */
+	synchronized void addTicket(String channel, String repository, String project, String url, long number,
+			String title, String ticketUrl, Action action) {
+		RepositoryDigest digest = getDigest(channel, repository, project, url);
+		switch (action) {
+		case OPENED:
+			digest.opened++;
+			break;
+		case CLOSED:
+			digest.closed++;
+			break;
+		default:
+			digest.updated++;
+			break;
+		}
+
+		TicketRef ref = null;
+		for (TicketRef t : digest.tickets) {
+			if (t.number == number) {
+				ref = t;
+				break;
+			}
+		}
+		if (ref == null && digest.tickets.size() < MAX_TICKETS) {
+			ref = new TicketRef();
+			ref.number = number;
+			digest.tickets.add(ref);
+		}
+		if (ref != null) {
+			// an update does not hide that the ticket was opened or closed
+			ref.title = title;
+			ref.url = ticketUrl;
+			if (ref.action == null || Action.UPDATED != action) {
+				ref.action = action;
+			}
+		}
+		dirty = true;
+	}
+
+	private RepositoryDigest getDigest(String channel, String repository, String project, String url) {
+		String name = normalize(channel);
+		String key = name == null ? "" : name;
+		ChannelDigest digest = digests.get(key);
+		if (digest == null) {
+			long now = System.currentTimeMillis();
+			long period = getPeriod(channel);
+			digest = new ChannelDigest();
+			digest.channel = name;
+			digest.due = next(now, period);
+			digest.start = digest.due - period;
+			digests.put(key, digest);
+		}
+		RepositoryDigest repo = digest.repositories.get(repository);
+		if (repo == null) {
+			repo = new RepositoryDigest();
+			digest.repositories.put(repository, repo);
+		}
+		repo.project = project;
+		repo.url = url;
+		return repo;
+	}
+
+	/**
+	 * Sends the digests which are due and spills the remaining digests.
+	 */
+	void tick() {
+		long now = System.currentTimeMillis();
+		List<ChannelDigest> due = new ArrayList<ChannelDigest>();
+		synchronized (this) {
+			Iterator<ChannelDigest> itr = digests.values().iterator();
+			while (itr.hasNext()) {
+				ChannelDigest digest = itr.next();
+				if (digest.due <= now) {
+					due.add(digest);
+					itr.remove();
+					dirty = true;
+				}
+			}
+		}
+
+		// the outbox holds a sent digest, so it is only dropped from the
+		// spill file afterwards
+		for (ChannelDigest digest : due) {
+			try {
+				send(digest);
+			} catch (Exception e) {
+				log.error("Failed to send the Slack digest of " + digest.channel, e);
+			}
+		}
+		save();
+	}
+
+	/**
+	 * Sends a digest with one message per group of destinations, each with
+	 * the repositories which those destinations accept.
+	 *
+	 * @param digest
+	 */
+	private void send(ChannelDigest digest) {
+		Map<List<Destination>, Map<String, RepositoryDigest>> groups =
+				new LinkedHashMap<List<Destination>, Map<String, RepositoryDigest>>();
+		for (Map.Entry<String, RepositoryDigest> entry : digest.repositories.entrySet()) {
+			List<Destination> targets = slacker.route(entry.getKey(), entry.getValue().project, EventType.DIGEST);
+			if (targets.isEmpty()) {
+				log.warn("No destination accepts the {} digest of {} for {}, dropping it",
+						digest.channel, entry.getKey(), new Date(digest.start));
+				continue;
+			}
+			Map<String, RepositoryDigest> group = groups.get(targets);
+			if (group == null) {
+				group = new TreeMap<String, RepositoryDigest>();
+				groups.put(targets, group);
+			}
+			group.put(entry.getKey(), entry.getValue());
+		}
+		for (Map.Entry<List<Destination>, Map<String, RepositoryDigest>> group : groups.entrySet()) {
+			slacker.sendTo(build(digest, group.getValue()), group.getKey(), EventType.DIGEST);
+		}
+	}
+
+	/**
+	 * Builds the digest message of a channel.
+	 *
+	 * @param digest
+	 * @param repositories the repositories to report
+	 * @return the payload
+	 */
+	Payload build(ChannelDigest digest, Map<String, RepositoryDigest> repositories) {
+		long period = digest.due - digest.start;
+		String label;
+		if (period == HOURLY) {
+			label = "Hourly";
+		} else if (period == DAILY) {
+			label = "Daily";
+		} else {
+			label = TimeUnit.MILLISECONDS.toMinutes(period) + " minute";
+		}
+		SimpleDateFormat df = new SimpleDateFormat("MMM d, HH:mm");
+		String headline = String.format("*%s digest* from %s to %s", label,
+				df.format(new Date(digest.start)), df.format(new Date(digest.due)));
+
+		List<Attachment> attachments = new ArrayList<Attachment>();
+		int commits = 0;
+		for (Map.Entry<String, RepositoryDigest> entry : repositories.entrySet()) {
+			RepositoryDigest repo = entry.getValue();
+			commits += repo.commits;
+			if (attachments.size() < MAX_REPOSITORIES) {
+				attachments.add(attachment(entry.getKey(), repo));
+			}
+		}
+
+		StringBuilder sb = new StringBuilder(headline);
+		sb.append(String.format("\n%d %s in %d %s", commits, commits == 1 ? "commit" : "commits",
+				repositories.size(), repositories.size() == 1 ? "repository" : "repositories"));
+		int more = repositories.size() - attachments.size();
+		if (more > 0) {
+			sb.append(String.format(", %d more not shown", more));
+		}
+
+		Payload payload = Payload.instance(sb.toString())
+				.attachments(attachments.toArray(new Attachment[attachments.size()]));
+		if (digest.channel != null) {
+			payload.setChannel(digest.channel);
+		}
+		payload.icon(slacker.getConfig().getGitEmoji());
+		return payload;
+	}
+
+	private Attachment attachment(String repository, RepositoryDigest repo) {
+		String name = StringUtils.stripDotGit(repository);
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("*<%s|%s>*\n", repo.url, name));
+
+		if (!repo.branches.isEmpty() || !repo.tags.isEmpty()) {
+			sb.append(String.format("%d %s", repo.commits, repo.commits == 1 ? "commit" : "commits"));
+			if (!repo.branches.isEmpty()) {
+				sb.append(" to ").append(refs(repo.branches));
+			}
+			if (!repo.tags.isEmpty()) {
+				sb.append(", tagged ").append(refs(repo.tags));
+			}
+			sb.append('\n');
+		}
+
+		if (!repo.authors.isEmpty()) {
+			List<Map.Entry<String, Integer>> authors = new ArrayList<Map.Entry<String, Integer>>(repo.authors.entrySet());
+			Collections.sort(authors, new Comparator<Map.Entry<String, Integer>>() {
+				@Override
+				public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+					int c = b.getValue().compareTo(a.getValue());
+					return c != 0 ? c : a.getKey().compareTo(b.getKey());
+				}
+			});
+			sb.append("Top authors: ");
+			for (int i = 0; i < Math.min(MAX_AUTHORS, authors.size()); i++) {
+				Map.Entry<String, Integer> author = authors.get(i);
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(String.format("%s (%d)", author.getKey(), author.getValue()));
+			}
+			sb.append('\n');
+		}
+
+		if (!repo.tickets.isEmpty()) {
+			sb.append(String.format("Tickets: %d opened, %d closed, %d updated\n",
+					repo.opened, repo.closed, repo.updated));
+			for (TicketRef ticket : repo.tickets) {
+				sb.append(String.format("<%s|ticket-%d> %s (%s)\n",
+						ticket.url, ticket.number, ticket.title, ticket.action));
+			}
+		}
+
+		return Attachment.instance(name).text(sb.toString().trim()).mrkdwnIn("text");
+	}
+
+	private String refs(TreeSet<String> refs) {
+		StringBuilder sb = new StringBuilder();
+		int i = 0;
+		for (String ref : refs) {
+			if (i == MAX_REFS) {
+				sb.append(String.format(" and %d more", refs.size() - MAX_REFS));
+				break;
+			}
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append('`').append(ref).append('`');
+			i++;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Loads the spilled digests.
+	 */
+	synchronized void load() {
+		if (!file.exists()) {
+			return;
+		}
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8")) {
+			Spill spill = PayloadEntity.GSON.fromJson(reader, Spill.class);
+			if (spill != null && spill.digests != null) {
+				for (ChannelDigest digest : spill.digests) {
+					digests.put(digest.channel == null ? "" : digest.channel, digest);
+				}
+			}
+			log.info("Loaded {} pending Slack digests from {}", digests.size(), file);
+		} catch (Exception e) {
+			log.error("Failed to load the Slack digests from " + file, e);
+		}
+	}
+
+	/**
+	 * Spills the digests to disk if they have changed.  The file is replaced
+	 * atomically so that a crash leaves either the old or the new digests.
+	 */
+	synchronized void save() {
+		if (!dirty) {
+			return;
+		}
+		Spill spill = new Spill();
+		spill.digests = new ArrayList<ChannelDigest>(digests.values());
+		File tmp = new File(file.getPath() + ".tmp");
+		try {
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8")) {
+				PayloadEntity.GSON.toJson(spill, writer);
+			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			dirty = false;
+		} catch (IOException e) {
+			log.error("Failed to save the Slack digests to " + file, e);
+		}
+	}
+
+	static class Spill {
+		List<ChannelDigest> digests;
+	}
+
+	static class ChannelDigest {
+		String channel;
+		long start;
+		long due;
+		TreeMap<String, RepositoryDigest> repositories = new TreeMap<String, RepositoryDigest>();
+	}
+
+	static class RepositoryDigest {
+		String project;
+		String url;
+		int commits;
+		TreeSet<String> branches = new TreeSet<String>();
+		TreeSet<String> tags = new TreeSet<String>();
+		HashMap<String, Integer> authors = new HashMap<String, Integer>();
+		int opened;
+		int closed;
+		int updated;
+		List<TicketRef> tickets = new ArrayList<TicketRef>();
+	}
+
+	static class TicketRef {
+		long number;
+		String title;
+		String url;
+		Action action;
+	}
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.IStoredSettings;
+
+/**
+ * A bounded, multi-lane queue of deliveries drained by a fixed set of worker
+ * threads.
+ *
+ * Each event type has its own lane with its own capacity, so user posts and
+ * ticket events are not stuck behind a flood of pushes.  Workers take from
+ * the lanes by smooth weighted round robin: a lane is served in proportion to
+ * its weight while it has deliveries, and every non-empty lane is served
+ * within one round, so low priority lanes still drain.
+ *
+ * When a lane is full the configured overflow policy decides whether the
+ * delivery is left in the outbox until the workers catch up (the default),
+ * the oldest delivery of the lane is dropped, or the caller blocks.  A
+ * delivery which could not be written to the outbox is never spilled, its
+ * caller blocks instead.
+ *
+ * Optionally a single worker hands each delivery to its own virtual thread,
+ * bounded by a semaphore, so many slow sends can be in flight without an
+ * OS thread each.
+ */
+class DispatchQueue {
+
+	public enum OverflowPolicy {
+		BLOCK, DROP_OLDEST, SPILL;
+
+		public static OverflowPolicy fromName(String name) {
+			for (OverflowPolicy policy : values()) {
+				if (policy.name().replace("_", "").equalsIgnoreCase(name)) {
+					return policy;
+				}
+			}
+			return SPILL;
+		}
+	}
+
+	final Logger log = LoggerFactory.getLogger(getClass());
+
+	final Slacker slacker;
+
+	final String name;
+
+	final Lane [] lanes;
+
+	final int workerCount;
+
+	final OverflowPolicy policy;
+
+	final long blockTimeout;
+
+	final AtomicLong dropped;
+
+	final List<Thread> workers;
+
+	final ReentrantLock lock;
+
+	final Condition notEmpty;
+
+	int size;
+
+	volatile boolean running;
+
+	private ThreadFactory sendThreads;
+
+	private Semaphore inFlight;
+
+	private int maxInFlight;
+
+	public DispatchQueue(Slacker slacker, String name, IStoredSettings settings, int workerCount,
+			OverflowPolicy policy, long blockTimeout) {
+		this.slacker = slacker;
+		this.name = name;
+		this.workerCount = Math.max(1, workerCount);
+		this.policy = policy;
+		this.blockTimeout = blockTimeout;
+		this.dropped = new AtomicLong();
+		this.workers = new ArrayList<Thread>();
+		this.lock = new ReentrantLock();
+		this.notEmpty = lock.newCondition();
+
+		int defaultCapacity = settings.getInteger(Plugin.SETTING_QUEUE_CAPACITY, 1000);
+		EventType [] types = EventType.values();
+		this.lanes = new Lane[types.length];
+		for (EventType type : types) {
+			String prefix = Plugin.SETTING_LANE_PREFIX + type + ".";
+			int capacity = settings.getInteger(prefix + "capacity", defaultCapacity);
+			int weight = settings.getInteger(prefix + "weight", getDefaultWeight(type));
+			lanes[type.ordinal()] = new Lane(type, Math.max(1, capacity), Math.max(1, weight));
+		}
+	}
+
+	static int getDefaultWeight(EventType type) {
+		switch (type) {
+		case POST:
+			return 8;
+		case TICKET:
+		case DIGEST:
+			return 4;
+		case PUSH:
+			return 2;
+		case TAG:
+		default:
+			return 1;
+		}
+	}
+
+	/**
+	 * Sends each delivery on a new thread from the factory, with at most
+	 * maxInFlight sends at a time.  Must be called before the queue is
+	 * started.
+	 *
+	 * @param factory a factory of virtual threads
+	 * @param maxInFlight
+	 * @return this queue
+	 */
+	public synchronized DispatchQueue sendOn(ThreadFactory factory, int maxInFlight) {
+		this.sendThreads = factory;
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.inFlight = new Semaphore(this.maxInFlight);
+		return this;
+	}
+
+	public synchronized DispatchQueue start() {
+		if (running) {
+			return this;
+		}
+		running = true;
+
+		// one worker is enough to hand deliveries to send threads
+		int count = sendThreads == null ? workerCount : 1;
+		for (int i = 0; i < count; i++) {
+			Thread worker = new Thread(new Worker(), name + "-" + (i + 1));
+			worker.setDaemon(true);
+			worker.start();
+			workers.add(worker);
+		}
+		return this;
+	}
+
+	public synchronized DispatchQueue stop() {
+		if (!running) {
+			return this;
+		}
+		running = false;
+		for (Thread worker : workers) {
+			worker.interrupt();
+		}
+		workers.clear();
+
+		// queued deliveries remain in the outbox and are recovered on restart
+		List<Delivery> pending = new ArrayList<Delivery>();
+		lock.lock();
+		try {
+			for (Lane lane : lanes) {
+				pending.addAll(lane.deque);
+				lane.deque.clear();
+				lane.current = 0;
+			}
+			size = 0;
+		} finally {
+			lock.unlock();
+		}
+		for (Delivery delivery : pending) {
+			slacker.release(delivery);
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the lane of an event type.
+	 */
+	private Lane getLane(EventType type) {
+		return lanes[type.ordinal()];
+	}
+
+	/**
+	 * Queues a delivery for dispatch if its lane has room, without applying
+	 * the overflow policy.  This never blocks, so it is safe on the
+	 * scheduler thread.
+	 *
+	 * @param delivery
+	 * @return true if the delivery was queued
+	 */
+	public boolean tryOffer(Delivery delivery) {
+		Lane lane = getLane(delivery.type);
+		lock.lock();
+		try {
+			return lane.offer(delivery);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Queues a delivery for dispatch, applying the overflow policy if its
+	 * lane is full.
+	 *
+	 * @param delivery
+	 * @return true if the delivery was queued, false if it remains in the outbox
+	 */
+	public boolean offer(Delivery delivery) {
+		Lane lane = getLane(delivery.type);
+		Delivery oldest = null;
+		lock.lock();
+		try {
+			if (lane.offer(delivery)) {
+				return true;
+			}
+			if (policy == OverflowPolicy.SPILL && delivery.segment >= 0) {
+				return false;
+			}
+
+			switch (policy) {
+			case DROP_OLDEST:
+				oldest = lane.poll();
+				lane.offer(delivery);
+				return true;
+			case SPILL:
+				// not in the outbox, so spilling would lose it
+			case BLOCK:
+			default:
+				long nanos = TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+				try {
+					while (lane.isFull() && nanos > 0) {
+						nanos = lane.notFull.awaitNanos(nanos);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if (lane.offer(delivery)) {
+					return true;
+				}
+				log.warn("Slack {} lane is full after waiting {} msecs, message remains in the outbox",
+						lane.type, blockTimeout);
+				return false;
+			}
+		} finally {
+			lock.unlock();
+			if (oldest != null) {
+				dropped.incrementAndGet();
+				slacker.drop(oldest);
+				log.warn("Slack {} lane is full, dropped the oldest message", lane.type);
+			}
+		}
+	}
+
+	/**
+	 * Takes the next delivery by weighted round robin across the lanes.
+	 *
+	 * @param timeout
+	 * @param unit
+	 * @return the next delivery or null if none arrived within the timeout
+	 * @throws InterruptedException
+	 */
+	Delivery poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+
+			Lane next = null;
+			int total = 0;
+			for (Lane lane : lanes) {
+				if (lane.deque.isEmpty()) {
+					continue;
+				}
+				lane.current += lane.weight;
+				total += lane.weight;
+				if (next == null || lane.current > next.current) {
+					next = lane;
+				}
+			}
+			next.current -= total;
+			return next.poll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of deliveries waiting in memory for dispatch.
+	 *
+	 * @return the queue depth
+	 */
+	public int getDepth() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of deliveries waiting in the lane of an event type.
+	 *
+	 * @param type
+	 * @return the lane depth
+	 */
+	public int getDepth(EventType type) {
+		lock.lock();
+		try {
+			return getLane(type).deque.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the room left in the lane of an event type.
+	 *
+	 * @param type the event type
+	 * @return the remaining capacity of the lane
+	 */
+	public int getRemainingCapacity(EventType type) {
+		lock.lock();
+		try {
+			Lane lane = getLane(type);
+			return lane.capacity - lane.deque.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the number of sends running on their own threads.
+	 *
+	 * @return the number of sends in flight
+	 */
+	public int getInFlight() {
+		Semaphore permits = inFlight;
+		return permits == null ? 0 : maxInFlight - permits.availablePermits();
+	}
+
+	/**
+	 * One lane of the queue.  Guarded by the queue lock.
+	 */
+	private class Lane {
+
+		final EventType type;
+
+		final int capacity;
+
+		final int weight;
+
+		final ArrayDeque<Delivery> deque;
+
+		final Condition notFull;
+
+		int current;
+
+		Lane(EventType type, int capacity, int weight) {
+			this.type = type;
+			this.capacity = capacity;
+			this.weight = weight;
+			this.deque = new ArrayDeque<Delivery>();
+			this.notFull = lock.newCondition();
+		}
+
+		boolean isFull() {
+			return deque.size() >= capacity;
+		}
+
+		boolean offer(Delivery delivery) {
+			if (isFull()) {
+				return false;
+			}
+			deque.offer(delivery);
+			size++;
+			notEmpty.signal();
+			return true;
+		}
+
+		Delivery poll() {
+			Delivery delivery = deque.poll();
+			if (delivery != null) {
+				size--;
+				notFull.signal();
+			}
+			if (deque.isEmpty()) {
+				// an idle lane does not bank credit
+				current = 0;
+			}
+			return delivery;
+		}
+	}
+
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+			while (running) {
+				Delivery delivery;
+				try {
+					delivery = poll(1, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					break;
+				}
+
+				if (delivery == null) {
+					continue;
+				} else if (sendThreads == null) {
+					slacker.deliver(delivery);
+				} else if (!dispatch(delivery)) {
+					slacker.release(delivery);
+					break;
+				}
+			}
+		}
+
+		/**
+		 * Sends the delivery on a new thread once a send slot is free.
+		 *
+		 * @return false if interrupted while waiting for a send slot
+		 */
+		private boolean dispatch(final Delivery delivery) {
+			try {
+				inFlight.acquire();
+			} catch (InterruptedException e) {
+				return false;
+			}
+			try {
+				sendThreads.newThread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							slacker.deliver(delivery);
+						} finally {
+							inFlight.release();
+						}
+					}
+				}).start();
+			} catch (RuntimeException e) {
+				inFlight.release();
+				log.error("Failed to start a send thread, sending on the worker", e);
+				slacker.deliver(delivery);
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and histograms for the messages of one event type.  Latencies are
+ * recorded in usecs and reported in msecs.
+ */
+public class EventMetrics implements EventMetricsMBean {
+
+	final String name;
+
+	final AtomicLong enqueued;
+
+	final AtomicLong attempts;
+
+	final AtomicLong sent;
+
+	final AtomicLong retries;
+
+	final AtomicLong drops;
+
+	final AtomicLong suppressed;
+
+	/**
+	 * Time from enqueue to acknowledgement by the webhook.
+	 */
+	final Histogram latency;
+
+	/**
+	 * Time of the HTTP request and response.
+	 */
+	final Histogram roundTrip;
+
+	final Histogram bytes;
+
+	EventMetrics(String name) {
+		this.name = name;
+		this.enqueued = new AtomicLong();
+		this.attempts = new AtomicLong();
+		this.sent = new AtomicLong();
+		this.retries = new AtomicLong();
+		this.drops = new AtomicLong();
+		this.suppressed = new AtomicLong();
+		this.latency = new Histogram();
+		this.roundTrip = new Histogram();
+		this.bytes = new Histogram();
+	}
+
+	void recordLatency(long startNanos) {
+		latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+	}
+
+	void recordRoundTrip(long startNanos, long length) {
+		roundTrip.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+		if (length >= 0) {
+			bytes.record(length);
+		}
+	}
+
+	@Override
+	public long getEnqueued() {
+		return enqueued.get();
+	}
+
+	@Override
+	public long getAttempts() {
+		return attempts.get();
+	}
+
+	@Override
+	public long getSent() {
+		return sent.get();
+	}
+
+	@Override
+	public long getRetries() {
+		return retries.get();
+	}
+
+	@Override
+	public long getDrops() {
+		return drops.get();
+	}
+
+	@Override
+	public long getSuppressed() {
+		return suppressed.get();
+	}
+
+	@Override
+	public double getLatencyMean() {
+		return latency.getMean() / 1000d;
+	}
+
+	@Override
+	public long getLatency50thPercentile() {
+		return toMillis(latency.getPercentile(50));
+	}
+
+	@Override
+	public long getLatency99thPercentile() {
+		return toMillis(latency.getPercentile(99));
+	}
+
+	@Override
+	public long getLatencyMax() {
+		return toMillis(latency.getMax());
+	}
+
+	@Override
+	public double getRoundTripMean() {
+		return roundTrip.getMean() / 1000d;
+	}
+
+	@Override
+	public long getRoundTrip50thPercentile() {
+		return toMillis(roundTrip.getPercentile(50));
+	}
+
+	@Override
+	public long getRoundTrip99thPercentile() {
+		return toMillis(roundTrip.getPercentile(99));
+	}
+
+	@Override
+	public long getRoundTripMax() {
+		return toMillis(roundTrip.getMax());
+	}
+
+	@Override
+	public long getBytesSent() {
+		return bytes.getSum();
+	}
+
+	@Override
+	public double getBytesMean() {
+		return bytes.getMean();
+	}
+
+	@Override
+	public long getBytesMax() {
+		return bytes.getMax();
+	}
+
+	private static long toMillis(long micros) {
+		return TimeUnit.MICROSECONDS.toMillis(micros);
+	}
+}
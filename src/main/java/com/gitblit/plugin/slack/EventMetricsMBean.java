@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+/**
+ * JMX view of the messages of one event type.  Times are in msecs.
+ */
+public interface EventMetricsMBean {
+
+	long getEnqueued();
+
+	long getAttempts();
+
+	long getSent();
+
+	long getRetries();
+
+	long getDrops();
+
+	long getSuppressed();
+
+	double getLatencyMean();
+
+	long getLatency50thPercentile();
+
+	long getLatency99thPercentile();
+
+	long getLatencyMax();
+
+	double getRoundTripMean();
+
+	long getRoundTrip50thPercentile();
+
+	long getRoundTrip99thPercentile();
+
+	long getRoundTripMax();
+
+	long getBytesSent();
+
+	double getBytesMean();
+
+	long getBytesMax();
+}
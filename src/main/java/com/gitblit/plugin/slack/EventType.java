@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+/**
+ * The kind of event which produced a message.  Destinations may subscribe to
+ * a subset of the event types.
+ */
+public enum EventType {
+	PUSH, TAG, TICKET, POST, DIGEST;
+
+	public static EventType fromName(String name) {
+		for (EventType type : values()) {
+			if (type.name().equalsIgnoreCase(name)) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return name().toLowerCase();
+	}
+}
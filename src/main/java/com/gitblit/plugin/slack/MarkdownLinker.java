@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Links user mentions, ticket references, and commit ids in Markdown text in
+ * a single pass over the text.
+ *
+ * Instances are immutable and thread-safe.
+ */
+class MarkdownLinker {
+
+	private static final int MENTION = 1;
+
+	private static final int TICKET = 2;
+
+	private static final int SHORT_ID = 3;
+
+	private static final int REST_ID = 4;
+
+	final String canonicalUrl;
+
+	final int shaLen;
+
+	final Pattern pattern;
+
+	MarkdownLinker(String canonicalUrl, int shaLen) {
+		this.canonicalUrl = canonicalUrl;
+		this.shaLen = shaLen;
+		this.pattern = Pattern.compile(
+				// @mention
+				"(?<=\\s)@([A-Za-z0-9-_]+)"
+				// #123 ticket reference
+				+ "|(?<=[\\s,])#(\\d+)(?=[\\s,:\\.])"
+				// commit id
+				+ "|(?<=\\s)([A-Fa-f0-9]{" + shaLen + "})([A-Fa-f0-9]{" + (40 - shaLen) + "})");
+	}
+
+	boolean matches(String canonicalUrl, int shaLen) {
+		return this.shaLen == shaLen && this.canonicalUrl.equals(canonicalUrl);
+	}
+
+	/**
+	 * Returns the text with mentions, ticket references, and commit ids
+	 * replaced by Markdown links.
+	 *
+	 * @param text
+	 * @param repository
+	 * @return the linked text
+	 */
+	String link(String text, String repository) {
+		Matcher m = pattern.matcher(text);
+		if (!m.find()) {
+			return text;
+		}
+
+		StringBuilder sb = new StringBuilder(text.length() + 128);
+		int last = 0;
+		do {
+			sb.append(text, last, m.start());
+			if (m.start(MENTION) > -1) {
+				// emphasize and link mentions
+				String user = m.group(MENTION);
+				sb.append("**[@").append(user).append("](")
+					.append(canonicalUrl).append("/user/").append(user).append(")**");
+			} else if (m.start(TICKET) > -1) {
+				// link ticket refs
+				String number = m.group(TICKET);
+				sb.append("[#").append(number).append("](")
+					.append(canonicalUrl).append("/tickets?r=").append(repository)
+					.append("&h=").append(number).append(')');
+			} else {
+				// link commit shas
+				String shortId = m.group(SHORT_ID);
+				sb.append("[`").append(shortId).append("`](")
+					.append(canonicalUrl).append("/commit?r=").append(repository)
+					.append("&h=").append(shortId).append(m.group(REST_ID)).append(')');
+			}
+			last = m.end();
+		} while (m.find());
+		sb.append(text, last, text.length());
+		return sb.toString();
+	}
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.plugin.slack.entity.Payload;
+import com.google.gson.Gson;
+
+/**
+ * An append-only, segmented outbox of Slack payloads.
+ *
+ * Every payload is appended to the active segment file as one line, its
+ * event type, a tab and its JSON, before it is dispatched.  Acknowledged
+ * records are appended to a companion ack file.  On startup all
+ * unacknowledged records are recovered and segments which have been fully
+ * acknowledged are deleted.
+ */
+class Outbox {
+
+	private static final long SEGMENT_SIZE = 1024 * 1024;
+
+	private static final String LOG_EXT = ".log";
+
+	private static final String ACK_EXT = ".ack";
+
+	/**
+	 * The type code of a record which has not been read since a restart.
+	 */
+	private static final byte TYPE_UNKNOWN = 0;
+
+	final Logger log = LoggerFactory.getLogger(getClass());
+
+	final File folder;
+
+	final Destination destination;
+
+	final Gson gson;
+
+	final TreeMap<Long, Segment> segments;
+
+	Segment active;
+
+	Outbox(File folder, Destination destination) {
+		this.folder = folder;
+		this.destination = destination;
+		this.gson = PayloadEntity.GSON;
+		this.segments = new TreeMap<Long, Segment>();
+	}
+
+	/**
+	 * Opens the outbox, recovering the state of all existing segments.
+	 *
+	 * @return the number of unacknowledged records
+	 * @throws IOException
+	 */
+	synchronized int open() throws IOException {
+		folder.mkdirs();
+		File [] files = folder.listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (File file : files) {
+				String name = file.getName();
+				if (!name.endsWith(LOG_EXT)) {
+					continue;
+				}
+				long id;
+				try {
+					id = Long.parseLong(name.substring(0, name.length() - LOG_EXT.length()));
+				} catch (NumberFormatException e) {
+					continue;
+				}
+				Segment segment = new Segment(id);
+				segment.recover();
+				if (segment.isComplete()) {
+					segment.delete();
+				} else {
+					segments.put(id, segment);
+				}
+			}
+		}
+
+		return getPending();
+	}
+
+	synchronized void close() {
+		for (Segment segment : segments.values()) {
+			segment.close();
+			for (SendFuture future : segment.futures.values()) {
+				future.done(new IOException("Slack plugin stopped, the message remains in the outbox"));
+			}
+			segment.futures.clear();
+		}
+		segments.clear();
+		active = null;
+	}
+
+	/**
+	 * Durably appends a payload to the outbox.  The returned delivery is
+	 * marked in flight until it is acknowledged or released.
+	 *
+	 * @param payload
+	 * @param type
+	 * @param future the future to complete when the record is acknowledged, may be null
+	 * @return the delivery
+	 * @throws IOException
+	 */
+	synchronized Delivery append(Payload payload, EventType type, SendFuture future) throws IOException {
+		if (active == null || active.size >= SEGMENT_SIZE) {
+			roll();
+		}
+		byte [] record = (type.name() + "\t" + gson.toJson(payload) + "\n").getBytes("UTF-8");
+		int index = active.append(record);
+		active.types[index] = typeCode(type);
+		active.inFlight.set(index);
+		if (future != null) {
+			// followed across releases until the record is acknowledged
+			active.futures.put(index, future);
+		}
+		return new Delivery(destination, payload, type, future, active.id, index);
+	}
+
+	/**
+	 * Acknowledges a delivery.  Segments which are no longer active and which
+	 * have been fully acknowledged are deleted.
+	 *
+	 * @param delivery
+	 */
+	synchronized void ack(Delivery delivery) {
+		Segment segment = segments.get(delivery.segment);
+		if (segment == null) {
+			return;
+		}
+		segment.inFlight.clear(delivery.index);
+		segment.futures.remove(delivery.index);
+		try {
+			segment.ack(delivery.index);
+		} catch (IOException e) {
+			log.error("Failed to acknowledge Slack outbox record " + delivery, e);
+		}
+		compact(segment);
+	}
+
+	/**
+	 * Releases an unacknowledged delivery so that it can be drained again.
+	 *
+	 * @param delivery
+	 */
+	synchronized void release(Delivery delivery) {
+		Segment segment = segments.get(delivery.segment);
+		if (segment != null) {
+			segment.inFlight.clear(delivery.index);
+		}
+	}
+
+	/**
+	 * Returns unacknowledged records which are not in flight, oldest first,
+	 * up to the room of the lane of each event type.  The returned deliveries
+	 * are marked in flight.
+	 *
+	 * @param room the room per event type ordinal, decremented for each record
+	 * @return a list of deliveries
+	 */
+	synchronized List<Delivery> drain(int [] room) {
+		int left = 0;
+		for (int r : room) {
+			left += Math.max(0, r);
+		}
+		List<Delivery> list = new ArrayList<Delivery>();
+		Iterator<Segment> itr = segments.values().iterator();
+		while (itr.hasNext() && left > 0) {
+			Segment segment = itr.next();
+			for (int i = 0; i < segment.count && left > 0; i++) {
+				if (segment.acked.get(i) || segment.inFlight.get(i)) {
+					continue;
+				}
+				if (segment.types[i] != TYPE_UNKNOWN && room[lane(segment.types[i])] <= 0) {
+					// the lane of this record is full, later records may fit
+					continue;
+				}
+				Payload payload = null;
+				try {
+					payload = segment.read(i);
+				} catch (Exception e) {
+					log.error("Failed to read Slack outbox record " + segment.id + ":" + i, e);
+				}
+				if (payload == null) {
+					// unreadable, acknowledge it so we do not retry forever
+					try {
+						segment.ack(i);
+					} catch (IOException e) {
+						log.error("Failed to acknowledge Slack outbox record " + segment.id + ":" + i, e);
+					}
+					continue;
+				}
+				int lane = lane(segment.types[i]);
+				if (room[lane] <= 0) {
+					continue;
+				}
+				room[lane]--;
+				left--;
+				segment.inFlight.set(i);
+				list.add(new Delivery(destination, payload, toType(segment.types[i]), segment.futures.get(i), segment.id, i));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the number of unacknowledged records.
+	 *
+	 * @return the number of unacknowledged records
+	 */
+	synchronized int getPending() {
+		int pending = 0;
+		for (Segment segment : segments.values()) {
+			pending += segment.count - segment.acked.cardinality();
+		}
+		return pending;
+	}
+
+	private static byte typeCode(EventType type) {
+		return (byte) (type.ordinal() + 1);
+	}
+
+	private static EventType toType(byte code) {
+		return EventType.values()[code - 1];
+	}
+
+	private static int lane(byte code) {
+		return toType(code).ordinal();
+	}
+
+	private void roll() throws IOException {
+		Segment previous = active;
+		long id = Math.max(System.currentTimeMillis(), segments.isEmpty() ? 0 : segments.lastKey() + 1);
+		active = new Segment(id);
+		active.create();
+		segments.put(id, active);
+		if (previous != null) {
+			previous.closeLog();
+			compact(previous);
+		}
+	}
+
+	private void compact(Segment segment) {
+		if (segment != active && segment.isComplete()) {
+			segment.close();
+			segment.delete();
+			segments.remove(segment.id);
+		}
+	}
+
+	private class Segment {
+
+		final long id;
+
+		final File logFile;
+
+		final File ackFile;
+
+		final BitSet acked;
+
+		final BitSet inFlight;
+
+		final Map<Integer, SendFuture> futures;
+
+		long [] offsets;
+
+		/**
+		 * The event type code of each record, read lazily after a restart.
+		 */
+		byte [] types;
+
+		int count;
+
+		long size;
+
+		FileOutputStream logOut;
+
+		FileOutputStream ackOut;
+
+		Segment(long id) {
+			this.id = id;
+			this.logFile = new File(folder, String.format("%020d%s", id, LOG_EXT));
+			this.ackFile = new File(folder, String.format("%020d%s", id, ACK_EXT));
+			this.acked = new BitSet();
+			this.inFlight = new BitSet();
+			this.futures = new HashMap<Integer, SendFuture>();
+			this.offsets = new long[64];
+			this.types = new byte[64];
+		}
+
+		void create() throws IOException {
+			logOut = new FileOutputStream(logFile, true);
+		}
+
+		/**
+		 * Rebuilds the record offsets and the ack bitmap from disk.  A torn
+		 * record at the end of the log, left by a crash, is truncated.
+		 */
+		void recover() throws IOException {
+			try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+				byte [] buffer = new byte[8192];
+				long position = 0;
+				long recordStart = 0;
+				int len;
+				while ((len = raf.read(buffer)) > -1) {
+					for (int i = 0; i < len; i++) {
+						if (buffer[i] == '\n') {
+							addOffset(recordStart);
+							recordStart = position + i + 1;
+						}
+					}
+					position += len;
+				}
+				if (recordStart < position) {
+					log.warn("Truncating torn record in Slack outbox segment {}", logFile);
+					raf.setLength(recordStart);
+				}
+				size = recordStart;
+			}
+
+			if (ackFile.exists()) {
+				try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(ackFile), "UTF-8"))) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						try {
+							acked.set(Integer.parseInt(line.trim()));
+						} catch (NumberFormatException e) {
+							// torn ack, ignore
+						}
+					}
+				}
+			}
+		}
+
+		int append(byte [] record) throws IOException {
+			logOut.write(record);
+			logOut.flush();
+			int index = addOffset(size);
+			size += record.length;
+			return index;
+		}
+
+		/**
+		 * Reads a record and notes its event type.
+		 */
+		Payload read(int index) throws IOException {
+			long start = offsets[index];
+			long end = index + 1 < count ? offsets[index + 1] : size;
+			byte [] record = new byte[(int) (end - start)];
+			try (RandomAccessFile raf = new RandomAccessFile(logFile, "r")) {
+				raf.seek(start);
+				raf.readFully(record);
+			}
+			String line = new String(record, "UTF-8").trim();
+			int tab = line.indexOf('\t');
+			EventType type = tab < 0 ? null : EventType.fromName(line.substring(0, tab));
+			if (type == null) {
+				throw new IOException("Missing event type");
+			}
+			types[index] = typeCode(type);
+			return gson.fromJson(line.substring(tab + 1), Payload.class);
+		}
+
+		void ack(int index) throws IOException {
+			if (ackOut == null) {
+				ackOut = new FileOutputStream(ackFile, true);
+			}
+			ackOut.write((index + "\n").getBytes("UTF-8"));
+			ackOut.flush();
+			acked.set(index);
+		}
+
+		boolean isComplete() {
+			return acked.cardinality() >= count;
+		}
+
+		void closeLog() {
+			if (logOut != null) {
+				try {
+					logOut.close();
+				} catch (IOException e) {
+					log.warn("Failed to close " + logFile, e);
+				}
+				logOut = null;
+			}
+		}
+
+		void close() {
+			closeLog();
+			if (ackOut != null) {
+				try {
+					ackOut.close();
+				} catch (IOException e) {
+					log.warn("Failed to close " + ackFile, e);
+				}
+				ackOut = null;
+			}
+		}
+
+		void delete() {
+			logFile.delete();
+			ackFile.delete();
+		}
+
+		private int addOffset(long offset) {
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+				types = Arrays.copyOf(types, count * 2);
+			}
+			offsets[count] = offset;
+			return count++;
+		}
+	}
+}
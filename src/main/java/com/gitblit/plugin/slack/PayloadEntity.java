@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.gitblit.plugin.slack.entity.Payload;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * An HTTP entity which serializes a payload directly into its request body,
+ * either as an application/json document or as the "payload" parameter of an
+ * application/x-www-form-urlencoded form.
+ *
+ * The body is encoded in a single pass into a byte array which the entity
+ * keeps, so its length is known up front and it may be sent, or retried,
+ * from any thread at any time.
+ */
+class PayloadEntity extends AbstractHttpEntity {
+
+	/**
+	 * Gson instances are thread-safe and expensive to create.
+	 */
+	static final Gson GSON = new GsonBuilder().create();
+
+	private final byte [] content;
+
+	private final int length;
+
+	PayloadEntity(Payload payload, boolean json) throws IOException {
+		Buffer buffer = new Buffer();
+		OutputStream os;
+		if (json) {
+			setContentType("application/json; charset=UTF-8");
+			os = buffer;
+		} else {
+			setContentType("application/x-www-form-urlencoded; charset=UTF-8");
+			buffer.write("payload=".getBytes("US-ASCII"));
+			os = new FormEncoder(buffer);
+		}
+
+		Writer writer = new OutputStreamWriter(os, "UTF-8");
+		GSON.toJson(payload, writer);
+		writer.flush();
+
+		// the entity owns the buffer, so its array is used without a copy
+		this.content = buffer.array();
+		this.length = buffer.size();
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public long getContentLength() {
+		return length;
+	}
+
+	@Override
+	public InputStream getContent() {
+		return new ByteArrayInputStream(content, 0, length);
+	}
+
+	@Override
+	public void writeTo(OutputStream os) throws IOException {
+		os.write(content, 0, length);
+		os.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * A byte buffer which exposes its backing array.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+
+		Buffer() {
+			super(1024);
+		}
+
+		byte [] array() {
+			return buf;
+		}
+	}
+
+	/**
+	 * Applies application/x-www-form-urlencoded encoding to UTF-8 bytes, with
+	 * the same rules as URLEncoder.
+	 */
+	private static class FormEncoder extends FilterOutputStream {
+
+		private static final byte [] HEX = "0123456789ABCDEF".getBytes();
+
+		FormEncoder(OutputStream os) {
+			super(os);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			b &= 0xff;
+			if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+					|| b == '.' || b == '-' || b == '*' || b == '_') {
+				out.write(b);
+			} else if (b == ' ') {
+				out.write('+');
+			} else {
+				out.write('%');
+				out.write(HEX[b >> 4]);
+				out.write(HEX[b & 0xf]);
+			}
+		}
+
+		@Override
+		public void write(byte [] b, int off, int len) throws IOException {
+			for (int i = off; i < off + len; i++) {
+				write(b[i]);
+			}
+		}
+	}
+}
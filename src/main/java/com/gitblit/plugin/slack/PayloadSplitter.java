@@ -0,0 +1,429 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.gitblit.plugin.slack.entity.Attachment;
+import com.gitblit.plugin.slack.entity.Field;
+import com.gitblit.plugin.slack.entity.Payload;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Splits a payload which is too large for the webhook into several payloads,
+ * before any network I/O.
+ *
+ * Sizes are measured as the UTF-8 length of the serialized JSON, including
+ * the escapes written by Gson.  Text is split at paragraphs, list items and
+ * lines where possible, and a code fence which spans a split is closed and
+ * reopened.  Oversized attachments are split into several attachments.  A
+ * message which would need more than the maximum number of parts is
+ * truncated.
+ */
+class PayloadSplitter {
+
+	static final int MAX_ATTACHMENTS = 100;
+
+	static final int DEFAULT_MAX_SIZE = 16000;
+
+	static final int DEFAULT_MAX_PARTS = 5;
+
+	/**
+	 * Room for the JSON keys and separators of a text or field and for the
+	 * truncation marker.
+	 */
+	private static final int RESERVE = 64;
+
+	private static final int MIN_BUDGET = 256;
+
+	private static final String FENCE = "```";
+
+	private static final String TRUNCATED = "\n_(message truncated)_";
+
+	final int maxSize;
+
+	final int maxParts;
+
+	PayloadSplitter(int maxSize, int maxParts) {
+		this.maxSize = maxSize;
+		this.maxParts = Math.max(1, maxParts);
+	}
+
+	/**
+	 * Returns the payload, or the parts of the payload if it is too large.
+	 *
+	 * @param payload
+	 * @return one or more payloads
+	 */
+	List<Payload> split(Payload payload) {
+		List<Attachment> attachments = payload.getAttachments();
+		int attachmentCount = attachments == null ? 0 : attachments.size();
+		if (attachmentCount <= MAX_ATTACHMENTS && measure(payload) <= maxSize) {
+			return Collections.singletonList(payload);
+		}
+
+		JsonObject template = PayloadEntity.GSON.toJsonTree(payload).getAsJsonObject();
+		template.remove("text");
+		template.remove("attachments");
+		int budget = Math.max(MIN_BUDGET, maxSize - measure(template) - RESERVE);
+
+		List<Payload> parts = new ArrayList<Payload>();
+		Payload part = null;
+		int used = 0;
+		for (String chunk : splitText(payload.getText(), budget)) {
+			part = newPart(template, parts);
+			part.setText(chunk);
+			used = cost(chunk);
+		}
+
+		if (attachments != null) {
+			for (Attachment attachment : attachments) {
+				for (Attachment piece : splitAttachment(attachment, budget)) {
+					int c = measure(piece) + 1;
+					List<Attachment> current = part == null ? null : part.getAttachments();
+					if (part == null || used + c > budget || (current != null && current.size() == MAX_ATTACHMENTS)) {
+						part = newPart(template, parts);
+						used = 0;
+					}
+					part.addAttachment(piece);
+					used += c;
+				}
+			}
+		}
+
+		if (parts.size() > maxParts) {
+			parts = new ArrayList<Payload>(parts.subList(0, maxParts));
+			Payload last = parts.get(maxParts - 1);
+			if (last.getAttachments() == null) {
+				last.setText(last.getText() + TRUNCATED);
+			} else {
+				Attachment attachment = last.getAttachments().get(last.getAttachments().size() - 1);
+				attachment.setText((attachment.getText() == null ? "" : attachment.getText()) + TRUNCATED);
+			}
+		}
+		return parts;
+	}
+
+	private Payload newPart(JsonObject template, List<Payload> parts) {
+		Payload part = PayloadEntity.GSON.fromJson(template, Payload.class);
+		parts.add(part);
+		return part;
+	}
+
+	/**
+	 * Splits an attachment whose text or fields are too large.  Continuation
+	 * attachments keep the color and fallback but not the pretext.
+	 *
+	 * @param attachment
+	 * @param budget
+	 * @return one or more attachments
+	 */
+	List<Attachment> splitAttachment(Attachment attachment, int budget) {
+		if (measure(attachment) <= budget) {
+			return Collections.singletonList(attachment);
+		}
+
+		JsonObject shell = PayloadEntity.GSON.toJsonTree(attachment).getAsJsonObject();
+		shell.remove("text");
+		shell.remove("fields");
+		int room = Math.max(MIN_BUDGET, budget - measure(shell) - RESERVE);
+
+		List<Attachment> pieces = new ArrayList<Attachment>();
+		Attachment piece = null;
+		int used = 0;
+		if (attachment.getText() != null) {
+			for (String chunk : splitText(attachment.getText(), room)) {
+				piece = newPiece(shell, pieces);
+				piece.setText(chunk);
+				used = cost(chunk);
+			}
+		}
+
+		if (attachment.getFields() != null) {
+			for (Field field : attachment.getFields()) {
+				int titleCost = cost(field.getTitle());
+				List<String> values = splitText(field.getValue(), Math.max(MIN_BUDGET, room - titleCost - RESERVE));
+				for (int i = 0; i < values.size(); i++) {
+					// continued values are shown without a title
+					Field f = new Field(i == 0 ? field.getTitle() : "", values.get(i), field.isShort())
+							.isMrkdwn(field.isMrkdwn());
+					int c = cost(f.getTitle()) + cost(f.getValue()) + RESERVE;
+					if (piece == null || used + c > room) {
+						piece = newPiece(shell, pieces);
+						used = 0;
+					}
+					piece.addField(f);
+					used += c;
+				}
+			}
+		}
+
+		if (pieces.isEmpty()) {
+			// too large for other reasons, e.g. the pretext, send it as is
+			pieces.add(attachment);
+		}
+		return pieces;
+	}
+
+	private Attachment newPiece(JsonObject shell, List<Attachment> pieces) {
+		Attachment piece = PayloadEntity.GSON.fromJson(shell, Attachment.class);
+		if (!pieces.isEmpty()) {
+			piece.setPretext(null);
+		}
+		pieces.add(piece);
+		return piece;
+	}
+
+	/**
+	 * Splits text into chunks whose serialized size fits the budget.
+	 *
+	 * @param text
+	 * @param budget the serialized size of a chunk
+	 * @return one or more chunks
+	 */
+	static List<String> splitText(String text, int budget) {
+		if (text == null || cost(text) <= budget) {
+			return Collections.singletonList(text);
+		}
+
+		List<String> chunks = new ArrayList<String>();
+		String reopen = FENCE + "\n";
+		String close = "\n" + FENCE;
+		int start = 0;
+		boolean fenced = false;
+		while (start < text.length()) {
+			String prefix = fenced ? reopen : "";
+			int room = Math.max(1, budget - cost(prefix) - cost(close));
+			int end = fit(text, start, room);
+			if (end == text.length()) {
+				chunks.add(prefix + text.substring(start));
+				break;
+			}
+
+			int cut = boundary(text, start, end);
+			boolean open = fenced ^ (count(text, FENCE, start, cut) % 2 == 1);
+			String chunk = prefix + trimTrailingNewlines(text.substring(start, cut));
+			if (open) {
+				chunk += close;
+			}
+			chunks.add(chunk);
+			// the next part does not start with a blank line
+			start = cut;
+			while (start < text.length() && text.charAt(start) == '\n') {
+				start++;
+			}
+			fenced = open;
+		}
+		return chunks;
+	}
+
+	/**
+	 * Returns the end of the longest run of text, from start, which fits the
+	 * room.
+	 */
+	private static int fit(String text, int start, int room) {
+		int used = 0;
+		int i = start;
+		while (i < text.length()) {
+			int c = cost(text.charAt(i));
+			if (used + c > room) {
+				break;
+			}
+			used += c;
+			i++;
+		}
+		if (i > start && i < text.length() && Character.isHighSurrogate(text.charAt(i - 1))) {
+			// do not split a surrogate pair
+			i--;
+		}
+		return Math.max(i, start + 1);
+	}
+
+	/**
+	 * Returns the safest cut in (start, end]: before a paragraph, a list item
+	 * or a code fence, else at a line break, else at a space outside of a
+	 * Slack link, else at end.
+	 */
+	static int boundary(String text, int start, int end) {
+		int half = start + (end - start) / 2;
+		for (int i = end; i > half; i--) {
+			if (text.charAt(i - 1) == '\n' && isBlockStart(text, i)) {
+				return i;
+			}
+		}
+		for (int i = end; i > start; i--) {
+			if (text.charAt(i - 1) == '\n') {
+				return i;
+			}
+		}
+		for (int i = end; i > start; i--) {
+			if (text.charAt(i - 1) == ' ' && !isInLink(text, start, i)) {
+				return i;
+			}
+		}
+		int open = text.lastIndexOf('<', end - 1);
+		if (open > start && isInLink(text, start, end)) {
+			return open;
+		}
+		return end;
+	}
+
+	private static boolean isBlockStart(String text, int i) {
+		if (i >= text.length()) {
+			return true;
+		}
+		char c = text.charAt(i);
+		if (c == '\n' || text.startsWith(FENCE, i)) {
+			return true;
+		}
+		if ((c == '-' || c == '*' || c == '\u2022' || c == '>') && i + 1 < text.length() && text.charAt(i + 1) == ' ') {
+			return true;
+		}
+		int j = i;
+		while (j < text.length() && Character.isDigit(text.charAt(j))) {
+			j++;
+		}
+		return j > i && j < text.length() && text.charAt(j) == '.';
+	}
+
+	private static boolean isInLink(String text, int start, int i) {
+		int open = text.lastIndexOf('<', i - 1);
+		return open >= start && text.lastIndexOf('>', i - 1) < open;
+	}
+
+	private static int count(String text, String token, int start, int end) {
+		int n = 0;
+		int i = text.indexOf(token, start);
+		while (i > -1 && i + token.length() <= end) {
+			n++;
+			i = text.indexOf(token, i + token.length());
+		}
+		return n;
+	}
+
+	private static String trimTrailingNewlines(String text) {
+		int end = text.length();
+		while (end > 0 && text.charAt(end - 1) == '\n') {
+			end--;
+		}
+		return text.substring(0, end);
+	}
+
+	/**
+	 * Returns the serialized size of a string value, with its quotes.
+	 */
+	static int cost(String value) {
+		if (value == null) {
+			return 4;
+		}
+		int n = 2;
+		for (int i = 0; i < value.length(); i++) {
+			n += cost(value.charAt(i));
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the serialized size of a char, as written by the HTML-safe Gson
+	 * writer in UTF-8.  Each half of a surrogate pair counts 2 bytes.
+	 */
+	static int cost(char c) {
+		switch (c) {
+		case '"':
+		case '\\':
+		case '\n':
+		case '\r':
+		case '\t':
+		case '\b':
+		case '\f':
+			return 2;
+		case '<':
+		case '>':
+		case '&':
+		case '=':
+		case '\'':
+		case '\u2028':
+		case '\u2029':
+			return 6;
+		default:
+			if (c < 0x20) {
+				return 6;
+			} else if (c < 0x80) {
+				return 1;
+			} else if (c < 0x800 || Character.isSurrogate(c)) {
+				return 2;
+			}
+			return 3;
+		}
+	}
+
+	/**
+	 * Returns the UTF-8 length of the serialized object, without building the
+	 * JSON string.
+	 */
+	static int measure(Object o) {
+		CountingWriter writer = new CountingWriter();
+		if (o instanceof JsonElement) {
+			PayloadEntity.GSON.toJson((JsonElement) o, writer);
+		} else {
+			PayloadEntity.GSON.toJson(o, writer);
+		}
+		return writer.count;
+	}
+
+	private static class CountingWriter extends Writer {
+
+		int count;
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				char c = cbuf[i];
+				if (c < 0x80) {
+					count++;
+				} else if (c < 0x800 || Character.isSurrogate(c)) {
+					count += 2;
+				} else {
+					count += 3;
+				}
+			}
+		}
+
+		@Override
+		public void write(int c) {
+			write(new char[] { (char) c }, 0, 1);
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				write(str.charAt(i));
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
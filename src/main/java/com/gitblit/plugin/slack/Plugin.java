@@ -50,6 +50,80 @@ public class Plugin extends GitblitPlugin {
 
 	public static final String SETTING_POST_TAGS = "slack.postTags";
 
+	public static final String SETTING_MAX_CONNECTIONS = "slack.maxConnections";
+
+	public static final String SETTING_MAX_CONNECTIONS_PER_ROUTE = "slack.maxConnectionsPerRoute";
+
+	public static final String SETTING_KEEP_ALIVE = "slack.keepAlive";
+
+	public static final String SETTING_QUEUE_CAPACITY = "slack.queueCapacity";
+
+	public static final String SETTING_QUEUE_OVERFLOW = "slack.queueOverflow";
+
+	public static final String SETTING_QUEUE_TIMEOUT = "slack.queueTimeout";
+
+	public static final String SETTING_WORKER_THREADS = "slack.workerThreads";
+
+	public static final String SETTING_OUTBOX_FOLDER = "slack.outboxFolder";
+
+	public static final String SETTING_OUTBOX_DRAIN_INTERVAL = "slack.outboxDrainInterval";
+
+	public static final String SETTING_RETRY_PREFIX = "slack.retry.";
+
+	public static final String SETTING_RATE_LIMIT = "slack.rateLimit";
+
+	public static final String SETTING_RATE_LIMIT_BURST = "slack.rateLimitBurst";
+
+	public static final String SETTING_CONFIG_REFRESH_INTERVAL = "slack.configRefreshInterval";
+
+	public static final String SETTING_USER_CACHE_SIZE = "slack.userCacheSize";
+
+	public static final String SETTING_USER_CACHE_TTL = "slack.userCacheTtl";
+
+	public static final String SETTING_EVENT_QUEUE_CAPACITY = "slack.eventQueueCapacity";
+
+	public static final String SETTING_EVENT_THREADS = "slack.eventThreads";
+
+	public static final String SETTING_POST_JSON = "slack.postJson";
+
+	public static final String SETTING_COMMIT_WALK_LIMIT = "slack.commitWalkLimit";
+
+	public static final String SETTING_BATCH_PUSHES = "slack.batchPushes";
+
+	public static final String SETTING_COALESCE_WINDOW = "slack.coalesceWindow";
+
+	public static final String SETTING_DESTINATIONS = "slack.destinations";
+
+	public static final String SETTING_DESTINATION_PREFIX = "slack.destination.";
+
+	public static final String SETTING_CIRCUIT_FAILURE_THRESHOLD = "slack.circuitBreaker.failureThreshold";
+
+	public static final String SETTING_CIRCUIT_OPEN_TIMEOUT = "slack.circuitBreaker.openTimeout";
+
+	public static final String SETTING_CIRCUIT_MAX_OPEN_TIMEOUT = "slack.circuitBreaker.maxOpenTimeout";
+
+	public static final String SETTING_JMX = "slack.jmx";
+
+	public static final String SETTING_DEDUP_WINDOW = "slack.dedupWindow";
+
+	public static final String SETTING_DEDUP_CAPACITY = "slack.dedupCapacity";
+
+	public static final String SETTING_LANE_PREFIX = "slack.lane.";
+
+	public static final String SETTING_VIRTUAL_THREADS = "slack.virtualThreads";
+
+	public static final String SETTING_MAX_IN_FLIGHT = "slack.maxInFlight";
+
+	public static final String SETTING_DIGEST_CHANNELS = "slack.digest.channels";
+
+	public static final String SETTING_DIGEST_INTERVAL = "slack.digest.interval";
+
+	public static final String SETTING_DIGEST_FILE = "slack.digest.file";
+
+	public static final String SETTING_MAX_PAYLOAD_SIZE = "slack.maxPayloadSize";
+
+	public static final String SETTING_MAX_PAYLOAD_PARTS = "slack.maxPayloadParts";
+
 	public Plugin(PluginWrapper wrapper) {
 		super(wrapper);
 
@@ -59,6 +133,7 @@ public class Plugin extends GitblitPlugin {
 
 	@Override
 	public void start() {
+		Slacker.instance().start();
 		log.debug("{} STARTED.", getWrapper().getPluginId());
 	}
 
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.gitblit.plugin.slack.entity.Attachment;
+import com.gitblit.plugin.slack.entity.Payload;
+
+/**
+ * Collects the ref changes of one push into as few payloads as possible, with
+ * one attachment per group of similar ref changes.  A new payload is started
+ * only when the limits of the {@link PayloadSplitter} would be exceeded, so
+ * the splitter only has to split a single oversized ref change.
+ */
+class PushBatch {
+
+	/**
+	 * The serialized size of the attachments key and array.
+	 */
+	private static final int ATTACHMENTS_KEY = ",\"attachments\":[]".length();
+
+	final String headline;
+
+	final int maxSize;
+
+	final Map<String, List<String>> groups;
+
+	PushBatch(String headline, int maxSize) {
+		this.headline = headline;
+		this.maxSize = maxSize;
+		this.groups = new LinkedHashMap<String, List<String>>();
+	}
+
+	/**
+	 * Adds a ref change to a group.  Groups are rendered in the order they are
+	 * first added.
+	 *
+	 * @param group
+	 * @param line
+	 */
+	void add(String group, String line) {
+		List<String> lines = groups.get(group);
+		if (lines == null) {
+			lines = new ArrayList<String>();
+			groups.put(group, lines);
+		}
+		lines.add(line);
+	}
+
+	boolean isEmpty() {
+		return groups.isEmpty();
+	}
+
+	/**
+	 * Builds the payloads for the batch.
+	 *
+	 * @return one or more payloads
+	 */
+	List<Payload> build() {
+		// sizes are serialized bytes, as measured by the splitter
+		String continued = headline + " (continued)";
+		int empty = PayloadSplitter.measure(Payload.instance(continued)) + ATTACHMENTS_KEY;
+		List<Payload> payloads = new ArrayList<Payload>();
+		Payload payload = Payload.instance(headline);
+		int attachments = 0;
+		int size = empty;
+
+		for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+			String title = String.format("*%s* (%d)", group.getKey(), group.getValue().size());
+			// the attachment with its title and a comma separator
+			int shell = PayloadSplitter.measure(attachment(group.getKey(), new StringBuilder(title)))
+					+ PayloadSplitter.cost('\n') + 1;
+			StringBuilder text = null;
+			for (String line : group.getValue()) {
+				// the quotes of the value stand for the line break
+				int length = PayloadSplitter.cost(line);
+				if (text == null || size + length > maxSize) {
+					if (text != null) {
+						// this group continues in the next payload
+						payload.addAttachment(attachment(group.getKey(), text));
+						payloads.add(payload);
+						payload = Payload.instance(continued);
+						attachments = 0;
+						size = empty;
+					} else if (attachments == PayloadSplitter.MAX_ATTACHMENTS
+							|| (attachments > 0 && size + shell + length > maxSize)) {
+						// the group does not start in a full payload
+						payloads.add(payload);
+						payload = Payload.instance(continued);
+						attachments = 0;
+						size = empty;
+					}
+					text = new StringBuilder(title).append('\n');
+					size += shell;
+					attachments++;
+				}
+				text.append(line).append('\n');
+				size += length;
+			}
+			payload.addAttachment(attachment(group.getKey(), text));
+		}
+		payloads.add(payload);
+		return payloads;
+	}
+
+	private Attachment attachment(String group, StringBuilder text) {
+		return Attachment.instance(group).text(text.toString().trim()).mrkdwnIn("text");
+	}
+}
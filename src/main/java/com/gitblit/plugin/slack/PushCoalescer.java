@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.UserModel;
+
+/**
+ * Coalesces consecutive fast-forward pushes to the same branch, by the same
+ * user, into a single digest message.
+ *
+ * The first push opens a window for its repository and ref.  Pushes which
+ * continue the pending range within the window are merged into it and the
+ * digest is sent when the window closes.
+ */
+class PushCoalescer {
+
+	final Slacker slacker;
+
+	final long window;
+
+	final Map<String, PendingPush> pending;
+
+	PushCoalescer(Slacker slacker, long window) {
+		this.slacker = slacker;
+		this.window = window;
+		this.pending = new HashMap<String, PendingPush>();
+	}
+
+	/**
+	 * Adds a fast-forward push to the pending digest of its ref.
+	 *
+	 * @param push
+	 */
+	void add(PendingPush push) {
+		PendingPush flush = null;
+		boolean schedule = false;
+		synchronized (this) {
+			PendingPush current = pending.get(push.key());
+			if (current != null && current.continuedBy(push)) {
+				current.merge(push);
+				return;
+			}
+			if (current != null) {
+				// a different user or a gap in the range, send what we have
+				flush = current;
+			}
+			pending.put(push.key(), push);
+			schedule = true;
+		}
+
+		if (flush != null) {
+			flush.send();
+		}
+		if (schedule) {
+			final String key = push.key();
+			final PendingPush scheduled = push;
+			boolean ok = slacker.schedule(new Runnable() {
+				@Override
+				public void run() {
+					flush(key, scheduled);
+				}
+			}, window, TimeUnit.MILLISECONDS);
+			if (!ok) {
+				flush(key, scheduled);
+			}
+		}
+	}
+
+	/**
+	 * Sends the pending digest of a ref now, if any.  This is used before a
+	 * push which can not be coalesced so that messages stay in order.
+	 *
+	 * @param repository
+	 * @param refName
+	 */
+	void flush(RepositoryModel repository, String refName) {
+		PendingPush push;
+		synchronized (this) {
+			push = pending.remove(PendingPush.key(repository.name, refName));
+		}
+		if (push != null) {
+			push.send();
+		}
+	}
+
+	/**
+	 * Sends all pending digests.
+	 */
+	void flushAll() {
+		List<PendingPush> list;
+		synchronized (this) {
+			list = new ArrayList<PendingPush>(pending.values());
+			pending.clear();
+		}
+		for (PendingPush push : list) {
+			push.send();
+		}
+	}
+
+	private void flush(String key, PendingPush push) {
+		synchronized (this) {
+			if (pending.get(key) != push) {
+				// already flushed
+				return;
+			}
+			pending.remove(key);
+		}
+		push.send();
+	}
+
+	/**
+	 * A fast-forward push, or a run of fast-forward pushes, to one ref.
+	 */
+	static class PendingPush {
+
+		final SlackReceiveHook hook;
+
+		final RepositoryModel repository;
+
+		final UserModel user;
+
+		final String refName;
+
+		final String oldId;
+
+		String newId;
+
+		int pushes;
+
+		CommitRange commits;
+
+		PendingPush(SlackReceiveHook hook, RepositoryModel repository, UserModel user, String refName,
+				String oldId, String newId, CommitRange commits) {
+			this.hook = hook;
+			this.repository = repository;
+			this.user = user;
+			this.refName = refName;
+			this.oldId = oldId;
+			this.newId = newId;
+			this.commits = commits;
+			this.pushes = 1;
+		}
+
+		static String key(String repository, String refName) {
+			return repository + ":" + refName;
+		}
+
+		String key() {
+			return key(repository.name, refName);
+		}
+
+		boolean continuedBy(PendingPush push) {
+			return user.username.equals(push.user.username) && newId.equals(push.oldId);
+		}
+
+		void merge(PendingPush push) {
+			// newest commits first, like the commit list of a single push
+			commits = commits.append(push.commits, hook.getMaxCommits());
+			pushes += push.pushes;
+			newId = push.newId;
+		}
+
+		void send() {
+			try {
+				hook.sendUpdate(this);
+			} catch (Exception e) {
+				LoggerFactory.getLogger(PushCoalescer.class).error("Failed to notify Slack!", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gitblit.IStoredSettings;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * Per-channel rate limiter built from lock-free token buckets.
+ *
+ * Each message reserves the next free send slot of its channel so the
+ * messages of a channel form a lane which is released at the configured
+ * rate, in order, without blocking any thread.
+ */
+class RateLimiter {
+
+	final IStoredSettings settings;
+
+	final double defaultRate;
+
+	final int defaultBurst;
+
+	final ConcurrentMap<String, TokenBucket> buckets;
+
+	RateLimiter(IStoredSettings settings) {
+		this.settings = settings;
+		this.defaultRate = parseRate(settings.getString(Plugin.SETTING_RATE_LIMIT, "1"), 1);
+		this.defaultBurst = Math.max(1, settings.getInteger(Plugin.SETTING_RATE_LIMIT_BURST, 3));
+		this.buckets = new ConcurrentHashMap<String, TokenBucket>();
+	}
+
+	/**
+	 * Reserves a send slot for the channel.
+	 *
+	 * @param channel the resolved channel, may be null
+	 * @param maxWait the longest acceptable wait in msecs
+	 * @return 0 to send now, the msecs to wait for the reserved slot, or -1 if
+	 *         the channel lane is longer than maxWait and nothing was reserved
+	 */
+	long reserve(String channel, long maxWait) {
+		TokenBucket bucket = getBucket(channel);
+		if (bucket == null) {
+			return 0;
+		}
+		long wait = bucket.reserve(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(maxWait));
+		if (wait <= 0) {
+			return wait;
+		}
+		return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+	}
+
+	private TokenBucket getBucket(String channel) {
+		String key = channel == null ? "" : channel.toLowerCase();
+		TokenBucket bucket = buckets.get(key);
+		if (bucket == null) {
+			double rate = defaultRate;
+			String name = key.length() > 0 && (key.charAt(0) == '#' || key.charAt(0) == '@') ? key.substring(1) : key;
+			if (!StringUtils.isEmpty(name)) {
+				rate = parseRate(settings.getString(Plugin.SETTING_RATE_LIMIT + "." + name, null), defaultRate);
+			}
+			TokenBucket created = rate > 0 ? new TokenBucket(rate, defaultBurst) : TokenBucket.UNLIMITED;
+			bucket = buckets.putIfAbsent(key, created);
+			if (bucket == null) {
+				bucket = created;
+			}
+		}
+		return bucket == TokenBucket.UNLIMITED ? null : bucket;
+	}
+
+	private static double parseRate(String value, double defaultValue) {
+		if (StringUtils.isEmpty(value)) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * A token bucket implemented as a generic cell rate algorithm.  The only
+	 * state is the theoretical arrival time of the next message, which is
+	 * advanced with compare-and-set.
+	 */
+	static class TokenBucket {
+
+		static final TokenBucket UNLIMITED = new TokenBucket(1, 1);
+
+		final long interval;
+
+		final long tolerance;
+
+		final AtomicLong tat;
+
+		TokenBucket(double rate, int burst) {
+			this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+			this.tolerance = interval * (burst - 1);
+			this.tat = new AtomicLong(System.nanoTime());
+		}
+
+		long reserve(long now, long maxWait) {
+			for (;;) {
+				long current = tat.get();
+				long sendAt = Math.max(now, current - tolerance);
+				long wait = sendAt - now;
+				if (wait > maxWait) {
+					return -1;
+				}
+				long next = Math.max(current, sendAt) + interval;
+				if (tat.compareAndSet(current, next)) {
+					return wait;
+				}
+			}
+		}
+	}
+}
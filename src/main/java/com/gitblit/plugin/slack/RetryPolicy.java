@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.gitblit.IStoredSettings;
+
+/**
+ * Capped exponential backoff with jitter for one class of send failure.
+ */
+class RetryPolicy {
+
+	enum ErrorClass {
+		RATE_LIMITED("rateLimited"), SERVER_ERROR("serverError"), NETWORK("network"), REJECTED("rejected");
+
+		final String key;
+
+		ErrorClass(String key) {
+			this.key = key;
+		}
+
+		static ErrorClass of(IOException e) {
+			if (e instanceof SlackException) {
+				SlackException se = (SlackException) e;
+				if (se.getStatusCode() == 429) {
+					return RATE_LIMITED;
+				} else if (se.isPermanent()) {
+					return REJECTED;
+				}
+				return SERVER_ERROR;
+			}
+			return NETWORK;
+		}
+	}
+
+	final int maxAttempts;
+
+	final long initialDelay;
+
+	final long maxDelay;
+
+	RetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+		this.maxAttempts = maxAttempts;
+		this.initialDelay = Math.max(1, initialDelay);
+		this.maxDelay = Math.max(this.initialDelay, maxDelay);
+	}
+
+	/**
+	 * Reads the policy for an error class from the settings.
+	 *
+	 * @param settings
+	 * @param errorClass
+	 * @return the retry policy
+	 */
+	static RetryPolicy of(IStoredSettings settings, ErrorClass errorClass) {
+		if (ErrorClass.REJECTED == errorClass) {
+			// the same payload will be rejected again
+			return new RetryPolicy(1, 0, 0);
+		}
+		String prefix = Plugin.SETTING_RETRY_PREFIX + errorClass.key + ".";
+		int maxAttempts = settings.getInteger(prefix + "maxAttempts", 10);
+		long initialDelay = settings.getInteger(prefix + "initialDelay", 1000);
+		long maxDelay = settings.getInteger(prefix + "maxDelay", 300000);
+		return new RetryPolicy(maxAttempts, initialDelay, maxDelay);
+	}
+
+	boolean shallRetry(int attempts) {
+		return attempts < maxAttempts;
+	}
+
+	/**
+	 * Returns the delay before the next attempt.  A Retry-After delay from
+	 * Slack takes precedence over the computed backoff.
+	 *
+	 * @param attempts the number of attempts made so far
+	 * @param retryAfter the delay requested by Slack in msecs, or 0
+	 * @return the delay in msecs
+	 */
+	long getDelay(int attempts, long retryAfter) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (retryAfter > 0) {
+			// a little jitter so deferred messages do not arrive as a burst
+			return retryAfter + random.nextLong(initialDelay);
+		}
+		int shift = Math.min(30, Math.max(0, attempts - 1));
+		long backoff = Math.min(maxDelay, initialDelay << shift);
+		// equal jitter: half fixed, half random
+		return backoff / 2 + random.nextLong(backoff / 2 + 1);
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The result of a submitted message.
+ *
+ * A message which fans out to several destinations completes when every
+ * destination has acknowledged or dropped it, and fails with the first
+ * failure.  A message which is set aside in the outbox, e.g. while a circuit
+ * is open, completes when it is finally sent.
+ */
+public class SendFuture implements Future<Void> {
+
+	private static final Logger log = LoggerFactory.getLogger(SendFuture.class);
+
+	private final CountDownLatch latch;
+
+	private final List<SendCallback> callbacks;
+
+	private int remaining;
+
+	private IOException failure;
+
+	SendFuture(int parts) {
+		this.latch = new CountDownLatch(1);
+		this.callbacks = new ArrayList<SendCallback>();
+		this.remaining = parts;
+		if (parts <= 0) {
+			latch.countDown();
+		}
+	}
+
+	static SendFuture completed() {
+		return new SendFuture(0);
+	}
+
+	static SendFuture failed(IOException e) {
+		SendFuture future = new SendFuture(1);
+		future.done(e);
+		return future;
+	}
+
+	/**
+	 * Records the outcome of one destination.
+	 *
+	 * @param e the failure, or null if the destination accepted the message
+	 */
+	void done(IOException e) {
+		List<SendCallback> list;
+		synchronized (this) {
+			if (remaining == 0) {
+				return;
+			}
+			if (e != null && failure == null) {
+				failure = e;
+			}
+			if (--remaining > 0) {
+				return;
+			}
+			list = new ArrayList<SendCallback>(callbacks);
+			callbacks.clear();
+		}
+		latch.countDown();
+		for (SendCallback callback : list) {
+			notify(callback);
+		}
+	}
+
+	/**
+	 * Adds a callback.  If the send has already completed the callback runs
+	 * on the calling thread.
+	 *
+	 * @param callback
+	 * @return this future
+	 */
+	public SendFuture addCallback(SendCallback callback) {
+		synchronized (this) {
+			if (remaining > 0) {
+				callbacks.add(callback);
+				return this;
+			}
+		}
+		notify(callback);
+		return this;
+	}
+
+	private void notify(SendCallback callback) {
+		try {
+			if (failure == null) {
+				callback.onSuccess();
+			} else {
+				callback.onFailure(failure);
+			}
+		} catch (RuntimeException e) {
+			log.error("Slack send callback failed", e);
+		}
+	}
+
+	/**
+	 * Waits for the send to complete.
+	 *
+	 * @param timeout
+	 * @param unit
+	 * @throws IOException if the send failed or did not complete in time
+	 */
+	public void await(long timeout, TimeUnit unit) throws IOException {
+		try {
+			if (!latch.await(timeout, unit)) {
+				throw new IOException(String.format("Message was not sent within %d seconds, it remains queued",
+						unit.toSeconds(timeout)));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the message to be sent", e);
+		}
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * Messages can not be recalled once queued.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		return latch.getCount() == 0;
+	}
+
+	@Override
+	public Void get() throws InterruptedException, ExecutionException {
+		latch.await();
+		return getResult();
+	}
+
+	@Override
+	public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		if (!latch.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return getResult();
+	}
+
+	private synchronized Void getResult() throws ExecutionException {
+		if (failure != null) {
+			throw new ExecutionException(failure);
+		}
+		return null;
+	}
+}
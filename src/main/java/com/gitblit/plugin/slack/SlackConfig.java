@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import com.gitblit.IStoredSettings;
+import com.gitblit.Keys;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * An immutable snapshot of the settings read while handling an event.
+ *
+ * A new snapshot is loaded periodically and swapped in atomically.  Hooks read
+ * the current snapshot once per event so that an event is handled with one
+ * consistent configuration.
+ */
+public class SlackConfig {
+
+	public final String url;
+
+	public final boolean postAsUser;
+
+	public final String defaultChannel;
+
+	/**
+	 * The default channel with a leading # and in lowercase, or null.
+	 */
+	public final String defaultChannelName;
+
+	public final boolean useProjectChannels;
+
+	public final String defaultEmoji;
+
+	public final String ticketEmoji;
+
+	public final String gitEmoji;
+
+	public final boolean allowUserPosts;
+
+	public final boolean postPersonalRepos;
+
+	public final boolean postTickets;
+
+	public final boolean postTicketComments;
+
+	public final boolean postBranches;
+
+	public final boolean postTags;
+
+	public final boolean batchPushes;
+
+	public final boolean postJson;
+
+	public final String canonicalUrl;
+
+	public final int shortCommitIdLength;
+
+	public final int commitWalkLimit;
+
+	/**
+	 * A hash of all Gitblit settings, which tells a changed settings file
+	 * from a periodic reload of the same settings.
+	 */
+	final int settingsHash;
+
+	public SlackConfig(IStoredSettings settings) {
+		this.url = settings.getString(Plugin.SETTING_URL, null);
+		this.postAsUser = settings.getBoolean(Plugin.SETTING_POST_AS_USER, true);
+		this.defaultChannel = settings.getString(Plugin.SETTING_DEFAULT_CHANNEL, null);
+		this.useProjectChannels = settings.getBoolean(Plugin.SETTING_USE_PROJECT_CHANNELS, false);
+		this.defaultEmoji = settings.getString(Plugin.SETTING_DEFAULT_EMOJI, null);
+		this.ticketEmoji = settings.getString(Plugin.SETTING_TICKET_EMOJI, null);
+		this.gitEmoji = settings.getString(Plugin.SETTING_GIT_EMOJI, null);
+		this.allowUserPosts = settings.getBoolean(Plugin.SETTING_ALLOW_USER_POSTS, false);
+		this.postPersonalRepos = settings.getBoolean(Plugin.SETTING_POST_PERSONAL_REPOS, false);
+		this.postTickets = settings.getBoolean(Plugin.SETTING_POST_TICKETS, true);
+		this.postTicketComments = settings.getBoolean(Plugin.SETTING_POST_TICKET_COMMENTS, true);
+		this.postBranches = settings.getBoolean(Plugin.SETTING_POST_BRANCHES, true);
+		this.postTags = settings.getBoolean(Plugin.SETTING_POST_TAGS, true);
+		this.batchPushes = settings.getBoolean(Plugin.SETTING_BATCH_PUSHES, false);
+		this.postJson = settings.getBoolean(Plugin.SETTING_POST_JSON, false);
+		this.canonicalUrl = settings.getString(Keys.web.canonicalUrl, "https://localhost:8443");
+		this.shortCommitIdLength = settings.getInteger(Keys.web.shortCommitIdLength, 6);
+		this.commitWalkLimit = settings.getInteger(Plugin.SETTING_COMMIT_WALK_LIMIT, 10000);
+		this.settingsHash = hash(settings);
+
+		if (StringUtils.isEmpty(defaultChannel)) {
+			this.defaultChannelName = null;
+		} else if (defaultChannel.charAt(0) != '#' && defaultChannel.charAt(0) != '@') {
+			// channels must be lowercase
+			this.defaultChannelName = ("#" + defaultChannel).toLowerCase();
+		} else {
+			this.defaultChannelName = defaultChannel.toLowerCase();
+		}
+	}
+
+	/**
+	 * Returns the emoji for git events, falling back to the default emoji.
+	 *
+	 * @return the git emoji
+	 */
+	public String getGitEmoji() {
+		return StringUtils.isEmpty(gitEmoji) ? defaultEmoji : gitEmoji;
+	}
+
+	/**
+	 * Returns the emoji for ticket events, falling back to the default emoji.
+	 *
+	 * @return the ticket emoji
+	 */
+	public String getTicketEmoji() {
+		return StringUtils.isEmpty(ticketEmoji) ? defaultEmoji : ticketEmoji;
+	}
+
+	private static int hash(IStoredSettings settings) {
+		int hash = 0;
+		for (String key : settings.getAllKeys(null)) {
+			// order independent
+			hash += key.hashCode() ^ String.valueOf(settings.getString(key, null)).hashCode();
+		}
+		return hash;
+	}
+}
@@ -16,6 +16,7 @@
 package com.gitblit.plugin.slack;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import org.kohsuke.args4j.Argument;
 import org.kohsuke.args4j.Option;
@@ -46,6 +47,10 @@ public class SlackDispatcher extends DispatchCommand {
 			register(TestCommand.class);
 			register(MessageCommand.class);
 		}
+		if (canAdmin) {
+			register(StatusCommand.class);
+			register(StatsCommand.class);
+		}
 	}
 
 	@CommandMetaData(name = "test", description = "Post a test message")
@@ -59,6 +64,9 @@ public class SlackDispatcher extends DispatchCommand {
 		@Argument(index = 0, metaVar = "#CHANNEL|@USER", usage = "Destination Channel or User for message")
 		String channel;
 
+		@Option(name = "--timeout", metaVar = "SECONDS", usage = "Seconds to wait for the message to be sent")
+		int timeout = 10;
+
 		/**
 		 * Post a test message
 		 */
@@ -76,7 +84,7 @@ public class SlackDispatcher extends DispatchCommand {
 			try {
 				IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
 				Slacker.init(runtimeManager);
-				Slacker.instance().send(payload);
+				Slacker.instance().send(payload, Math.max(1, timeout), TimeUnit.SECONDS);
 			} catch (IOException e) {
 			    throw new Failure(1, e.getMessage(), e);
 			}
@@ -131,5 +139,65 @@ public class SlackDispatcher extends DispatchCommand {
 		    Slacker.instance().sendAsync(payload);
 		}
 	}
-}
 
+	@CommandMetaData(name = "status", description = "Show the state of the Slack destinations", admin = true)
+	public static class StatusCommand extends SshCommand {
+
+		/**
+		 * Show the circuit, queue and outbox of each destination
+		 */
+		@Override
+		public void run() throws Failure {
+			IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
+			Slacker.init(runtimeManager);
+
+			String format = "%-16s %-10s %8s %8s %10s %8s %8s %8s";
+			stdout.println(String.format(format, "destination", "circuit", "failures", "trips", "fast-fails", "queued",
+					"sending", "unsent"));
+			for (Destination destination : Slacker.instance().getDestinations()) {
+				CircuitBreaker breaker = destination.breaker;
+				String state = breaker.getState().toString();
+				long remaining = breaker.getRemainingOpenTime();
+				if (remaining > 0) {
+					state += " " + TimeUnit.MILLISECONDS.toSeconds(remaining + 999) + "s";
+				}
+				stdout.println(String.format(format, destination.name, state, breaker.getFailures(),
+						breaker.getTrips(), breaker.getRejected(), destination.getQueueDepth(),
+						destination.getInFlight(), destination.getOutboxPending()));
+			}
+		}
+	}
+
+	@CommandMetaData(name = "stats", description = "Show the Slack message metrics", admin = true)
+	public static class StatsCommand extends SshCommand {
+
+		/**
+		 * Show the counters and latencies of each event type
+		 */
+		@Override
+		public void run() throws Failure {
+			IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
+			Slacker.init(runtimeManager);
+			SlackMetrics metrics = Slacker.instance().getMetrics();
+
+			stdout.println(String.format("queued: %d (max %d), unsent: %d, network errors: %d",
+					metrics.getQueueDepth(), metrics.getQueueDepthMax(), metrics.getOutboxPending(),
+					metrics.getNetworkErrors()));
+			stdout.println(String.format("status codes: %s", metrics.getStatusCodes()));
+			stdout.println(String.format("user cache: %d users, %d hits, %d misses",
+					metrics.getUserCacheSize(), metrics.getUserCacheHits(), metrics.getUserCacheMisses()));
+			stdout.println();
+
+			String format = "%-10s %8s %8s %8s %8s %8s %10s  %-20s %-20s %10s";
+			stdout.println(String.format(format, "event", "enqueued", "attempts", "sent", "retries", "drops", "suppressed",
+					"latency p50/p99/max", "round trip p50/p99/max", "avg bytes"));
+			for (EventMetrics event : metrics.getEvents()) {
+				stdout.println(String.format(format, event.name, event.getEnqueued(), event.getAttempts(),
+						event.getSent(), event.getRetries(), event.getDrops(), event.getSuppressed(),
+						event.getLatency50thPercentile() + "/" + event.getLatency99thPercentile() + "/" + event.getLatencyMax() + " ms",
+						event.getRoundTrip50thPercentile() + "/" + event.getRoundTrip99thPercentile() + "/" + event.getRoundTripMax() + " ms",
+						Math.round(event.getBytesMean())));
+			}
+		}
+	}
+}
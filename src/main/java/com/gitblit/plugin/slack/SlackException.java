@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the Slack webhook rejects a payload, or when a payload can not
+ * be sent at all.
+ */
+public class SlackException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	final int statusCode;
+
+	final long retryAfter;
+
+	public SlackException(int statusCode, String result) {
+		this(statusCode, result, 0);
+	}
+
+	/**
+	 * Creates an exception for a payload which can not be sent at all, e.g.
+	 * because no webhook url is defined.  Resending can not succeed.
+	 *
+	 * @param message
+	 */
+	public SlackException(String message) {
+		super(message);
+		this.statusCode = 0;
+		this.retryAfter = 0;
+	}
+
+	public SlackException(int statusCode, String result, long retryAfter) {
+		super(String.format("Slack Error (%s): %s", statusCode, result));
+		this.statusCode = statusCode;
+		this.retryAfter = retryAfter;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Returns the delay requested by the Retry-After header.
+	 *
+	 * @return the delay in msecs, or 0 if Slack did not specify a delay
+	 */
+	public long getRetryAfter() {
+		return retryAfter;
+	}
+
+	/**
+	 * Returns true if the payload reached the webhook.
+	 *
+	 * @return true if the webhook responded
+	 */
+	public boolean isSent() {
+		return statusCode > 0;
+	}
+
+	/**
+	 * Returns true if resending the same payload can not succeed.
+	 *
+	 * @return true if the payload was permanently rejected
+	 */
+	public boolean isPermanent() {
+		return !isSent() || statusCode >= 400 && statusCode < 500 && statusCode != 408 && statusCode != 429;
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Low-overhead instrumentation of the Slack plugin.
+ *
+ * Counters and histograms are kept per event type.  The metrics are shown by
+ * the "slack stats" SSH command and may be registered as JMX MBeans.
+ */
+public class SlackMetrics implements SlackMetricsMBean {
+
+	static final String DOMAIN = "com.gitblit.plugin.slack";
+
+	final Logger log = LoggerFactory.getLogger(getClass());
+
+	final Slacker slacker;
+
+	private final EventMetrics [] events;
+
+	/**
+	 * Depth of the dispatch queue of the destination, sampled at enqueue.
+	 */
+	final Histogram queueDepth;
+
+	final AtomicLong networkErrors;
+
+	final ConcurrentMap<Integer, AtomicLong> statusCodes;
+
+	private final List<ObjectName> registered;
+
+	SlackMetrics(Slacker slacker) {
+		this.slacker = slacker;
+		EventType [] types = EventType.values();
+		this.events = new EventMetrics[types.length];
+		for (EventType type : types) {
+			events[type.ordinal()] = new EventMetrics(type.toString());
+		}
+		this.queueDepth = new Histogram();
+		this.networkErrors = new AtomicLong();
+		this.statusCodes = new ConcurrentHashMap<Integer, AtomicLong>();
+		this.registered = new ArrayList<ObjectName>();
+	}
+
+	/**
+	 * Returns the metrics of an event type.
+	 *
+	 * @param type the event type
+	 * @return the event metrics
+	 */
+	EventMetrics get(EventType type) {
+		return events[type.ordinal()];
+	}
+
+	List<EventMetrics> getEvents() {
+		return Collections.unmodifiableList(Arrays.asList(events));
+	}
+
+	void recordStatus(int statusCode) {
+		AtomicLong counter = statusCodes.get(statusCode);
+		if (counter == null) {
+			AtomicLong created = new AtomicLong();
+			counter = statusCodes.putIfAbsent(statusCode, created);
+			if (counter == null) {
+				counter = created;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	Map<Integer, Long> getStatusCodeCounts() {
+		Map<Integer, Long> map = new TreeMap<Integer, Long>();
+		for (Map.Entry<Integer, AtomicLong> entry : statusCodes.entrySet()) {
+			map.put(entry.getKey(), entry.getValue().get());
+		}
+		return map;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server.
+	 */
+	synchronized void register() {
+		if (!registered.isEmpty()) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			register(server, new ObjectName(DOMAIN + ":type=Metrics"), this);
+			for (EventMetrics metrics : events) {
+				register(server, new ObjectName(DOMAIN + ":type=Metrics,event=" + metrics.name), metrics);
+			}
+		} catch (JMException e) {
+			log.error("Failed to register the Slack metrics MBeans", e);
+		}
+	}
+
+	private void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(mbean, name);
+		registered.add(name);
+	}
+
+	/**
+	 * Unregisters the metrics from the platform MBean server.
+	 */
+	synchronized void unregister() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : registered) {
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				log.warn("Failed to unregister " + name, e);
+			}
+		}
+		registered.clear();
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return slacker.getQueueDepth();
+	}
+
+	@Override
+	public long getQueueDepthMax() {
+		return queueDepth.getMax();
+	}
+
+	@Override
+	public int getOutboxPending() {
+		return slacker.getOutboxPending();
+	}
+
+	@Override
+	public long getNetworkErrors() {
+		return networkErrors.get();
+	}
+
+	@Override
+	public String getStatusCodes() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<Integer, Long> entry : getStatusCodeCounts().entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String getCircuits() {
+		StringBuilder sb = new StringBuilder();
+		for (Destination destination : slacker.getDestinations()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(destination.name).append('=').append(destination.breaker.getState());
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public int getUserCacheSize() {
+		UserCache cache = slacker.getUserCache();
+		return cache == null ? 0 : cache.size();
+	}
+
+	@Override
+	public long getUserCacheHits() {
+		UserCache cache = slacker.getUserCache();
+		return cache == null ? 0 : cache.getHits();
+	}
+
+	@Override
+	public long getUserCacheMisses() {
+		UserCache cache = slacker.getUserCache();
+		return cache == null ? 0 : cache.getMisses();
+	}
+}
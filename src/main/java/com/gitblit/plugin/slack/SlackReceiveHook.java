@@ -21,9 +21,6 @@ import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevSort;
-import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.ReceiveCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,15 +28,15 @@ import org.slf4j.LoggerFactory;
 import ro.fortsoft.pf4j.Extension;
 
 import com.gitblit.Constants;
-import com.gitblit.Keys;
 import com.gitblit.extensions.ReceiveHook;
 import com.gitblit.git.GitblitReceivePack;
 import com.gitblit.manager.IRuntimeManager;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.UserModel;
+import com.gitblit.plugin.slack.PushCoalescer.PendingPush;
+import com.gitblit.plugin.slack.UserCache.CachedUser;
 import com.gitblit.plugin.slack.entity.Payload;
 import com.gitblit.servlet.GitblitContext;
-import com.gitblit.utils.ActivityUtils;
 import com.gitblit.utils.StringUtils;
 
 /**
@@ -69,6 +66,17 @@ public class SlackReceiveHook extends ReceiveHook {
     	slacker = Slacker.instance();
 	}
 
+	/**
+	 * Creates a hook which posts through the given manager.
+	 *
+	 * @param slacker
+	 */
+	SlackReceiveHook(Slacker slacker) {
+		super();
+
+		this.slacker = slacker;
+	}
+
 	@Override
 	public void onPreReceive(GitblitReceivePack receivePack, Collection<ReceiveCommand> commands) {
 		// NOOP
@@ -76,43 +84,66 @@ public class SlackReceiveHook extends ReceiveHook {
 
 	@Override
 	public void onPostReceive(GitblitReceivePack receivePack, Collection<ReceiveCommand> commands) {
-		if (!shallPost(receivePack, commands)) {
+		if (!slacker.isStarted()) {
+			return;
+		}
+		SlackConfig config = slacker.getConfig();
+		if (!shallPost(config, receivePack, commands)) {
 			return;
 		}
 
-    	IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
+		List<ReceiveCommand> postable = new ArrayList<ReceiveCommand>();
+		for (ReceiveCommand cmd : commands) {
+			if (cmd.getRefName().startsWith(Constants.R_TAGS)) {
+		    	if (config.postTags) {
+		    		postable.add(cmd);
+		    	}
+			} else if (cmd.getRefName().startsWith(Constants.R_HEADS)) {
+		    	if (config.postBranches) {
+		    		postable.add(cmd);
+		    	}
+			}
+			// ignore other refs
+		}
+
+		DigestEngine digest = slacker.getDigestEngine();
+		if (digest != null) {
+			RepositoryModel repo = receivePack.getRepositoryModel();
+			String channel = slacker.getChannel(config, repo);
+			if (digest.accepts(channel, repo.name, repo.projectPath)) {
+				// rolled up into the next digest of the channel
+				addToDigest(config, receivePack, postable, digest, channel);
+				return;
+			}
+		}
+
 		try {
-			for (ReceiveCommand cmd : commands) {
-				RefType rType = null;
-				if (cmd.getRefName().startsWith(Constants.R_TAGS)) {
-					rType = RefType.TAG;
-			    	boolean shallPostTag = runtimeManager.getSettings().getBoolean(Plugin.SETTING_POST_TAGS, true);
-			    	if (!shallPostTag) {
-			    		continue;
-			    	}
-				} else if (cmd.getRefName().startsWith(Constants.R_HEADS)) {
-					rType = RefType.BRANCH;
-			    	boolean shallPostBranch = runtimeManager.getSettings().getBoolean(Plugin.SETTING_POST_BRANCHES, true);
-			    	if (!shallPostBranch) {
-			    		continue;
-			    	}
-				} else {
-					// ignore other refs
-					continue;
+			if (config.batchPushes && postable.size() > 1) {
+				sendBatch(config, receivePack, postable);
+				return;
+			}
+
+			for (ReceiveCommand cmd : postable) {
+				RefType rType = getRefType(cmd);
+
+				PushCoalescer coalescer = slacker.getPushCoalescer();
+				if (coalescer != null && ReceiveCommand.Type.UPDATE != cmd.getType()) {
+					// send the pending digest of this ref ahead of this change
+					coalescer.flush(receivePack.getRepositoryModel(), cmd.getRefName());
 				}
 
 				switch (cmd.getType()) {
 				case CREATE:
-					sendCreate(receivePack, cmd, rType);
+					sendCreate(config, receivePack, cmd, rType);
 					break;
 				case UPDATE:
-					sendUpdate(receivePack, cmd, rType, true);
+					sendUpdate(config, receivePack, cmd, rType, true);
 					break;
 				case UPDATE_NONFASTFORWARD:
-					sendUpdate(receivePack, cmd, rType, false);
+					sendUpdate(config, receivePack, cmd, rType, false);
 					break;
 				case DELETE:
-					sendDelete(receivePack, cmd, rType);
+					sendDelete(config, receivePack, cmd, rType);
 					break;
 				}
 			}
@@ -121,6 +152,14 @@ public class SlackReceiveHook extends ReceiveHook {
 		}
 	}
 
+	private RefType getRefType(ReceiveCommand cmd) {
+		return cmd.getRefName().startsWith(Constants.R_TAGS) ? RefType.TAG : RefType.BRANCH;
+	}
+
+	private EventType getEventType(RefType rType) {
+		return RefType.TAG == rType ? EventType.TAG : EventType.PUSH;
+	}
+
 	/**
 	 * Determine if the ref changes for this repository should be posted to Slack.
 	 *
@@ -128,7 +167,18 @@ public class SlackReceiveHook extends ReceiveHook {
 	 * @return true if the ref changes should be posted
 	 */
 	protected boolean shallPost(GitblitReceivePack receivePack, Collection<ReceiveCommand> commands) {
-		boolean shallPostRepo = slacker.shallPost(receivePack.getRepositoryModel());
+		return shallPost(slacker.getConfig(), receivePack, commands);
+	}
+
+	/**
+	 * Determine if the ref changes for this repository should be posted to Slack.
+	 *
+	 * @param config
+	 * @param receivePack
+	 * @return true if the ref changes should be posted
+	 */
+	protected boolean shallPost(SlackConfig config, GitblitReceivePack receivePack, Collection<ReceiveCommand> commands) {
+		boolean shallPostRepo = slacker.shallPost(config, receivePack.getRepositoryModel());
 		return shallPostRepo;
 	}
 
@@ -140,15 +190,25 @@ public class SlackReceiveHook extends ReceiveHook {
 	 * @param rType
 	 */
 	protected void sendCreate(GitblitReceivePack receivePack, ReceiveCommand cmd, RefType rType) throws IOException {
+		sendCreate(slacker.getConfig(), receivePack, cmd, rType);
+	}
+
+	/**
+	 * Sends a Slack message when a branch or a tag is created.
+	 *
+	 * @param config
+	 * @param receivePack
+	 * @param cmd
+	 * @param rType
+	 */
+	protected void sendCreate(SlackConfig config, GitblitReceivePack receivePack, ReceiveCommand cmd, RefType rType) throws IOException {
 		UserModel user = receivePack.getUserModel();
 		RepositoryModel repo = receivePack.getRepositoryModel();
 		String shortRef = Repository.shortenRefName(cmd.getRefName());
-		String repoUrl = getUrl(repo.name, null, null);
-		String logUrl = getUrl(repo.name, shortRef, null);
-		boolean postAsUser = receivePack.getGitblit().getSettings().getBoolean(Plugin.SETTING_POST_AS_USER, true);
-
+		String repoUrl = getUrl(config, repo.name, null, null);
+		String logUrl = getUrl(config, repo.name, shortRef, null);
 		String author;
-    	if (postAsUser) {
+    	if (config.postAsUser) {
     		// posting as user, do not BOLD username
     		author = user.getDisplayName();
     	} else {
@@ -160,10 +220,10 @@ public class SlackReceiveHook extends ReceiveHook {
     			rType.name().toLowerCase(), logUrl, shortRef, repoUrl, StringUtils.stripDotGit(repo.name));
 
     	Payload payload = Payload.instance(msg);
-    	attribute(payload, user);
+    	attribute(config, payload, user);
 
-    	slacker.setChannel(repo, payload);
-    	slacker.sendAsync(payload);
+    	slacker.setChannel(config, repo, payload);
+    	slacker.sendAsync(payload, repo, getEventType(rType));
     }
 
 	/**
@@ -175,14 +235,71 @@ public class SlackReceiveHook extends ReceiveHook {
 	 * @param isFF
 	 */
 	protected void sendUpdate(GitblitReceivePack receivePack, ReceiveCommand cmd, RefType rType, boolean isFF) throws IOException {
+		sendUpdate(slacker.getConfig(), receivePack, cmd, rType, isFF);
+	}
+
+	/**
+	 * Sends a Slack message when a branch or a tag has been updated.
+	 *
+	 * @param config
+	 * @param receivePack
+	 * @param cmd
+	 * @param rType
+	 * @param isFF
+	 */
+	protected void sendUpdate(SlackConfig config, GitblitReceivePack receivePack, ReceiveCommand cmd, RefType rType, boolean isFF) throws IOException {
 		UserModel user = receivePack.getUserModel();
 		RepositoryModel repo = receivePack.getRepositoryModel();
-		String shortRef = Repository.shortenRefName(cmd.getRefName());
-		String repoUrl = getUrl(repo.name, null, null);
-		boolean postAsUser = receivePack.getGitblit().getSettings().getBoolean(Plugin.SETTING_POST_AS_USER, true);
+		String oldId = cmd.getOldId().getName();
+		String newId = cmd.getNewId().getName();
+
+		CommitRange commits = null;
+		if (RefType.BRANCH == rType && isFF) {
+			commits = getCommits(config, receivePack, oldId, newId);
+		}
+
+		PushCoalescer coalescer = slacker.getPushCoalescer();
+		if (commits != null && coalescer != null) {
+			// merge bursts of pushes into a single digest
+			coalescer.add(new PendingPush(this, repo, user, cmd.getRefName(), oldId, newId, commits));
+			return;
+		}
+
+		sendUpdate(config, repo, user, cmd.getRefName(), rType, isFF, oldId, newId, commits, 1);
+	}
+
+	/**
+	 * Sends a Slack message for a coalesced run of fast-forward pushes.
+	 *
+	 * @param push
+	 */
+	protected void sendUpdate(PendingPush push) throws IOException {
+		SlackConfig config = slacker.getConfig();
+		sendUpdate(config, push.repository, push.user, push.refName, RefType.BRANCH, true,
+				push.oldId, push.newId, push.commits, push.pushes);
+	}
+
+	/**
+	 * Sends a Slack message when a branch or a tag has been updated.
+	 *
+	 * @param config
+	 * @param repo
+	 * @param user
+	 * @param refName
+	 * @param rType
+	 * @param isFF
+	 * @param oldId
+	 * @param newId
+	 * @param commits the newest commits of the update, may be null
+	 * @param pushes the number of pushes in the update
+	 */
+	protected void sendUpdate(SlackConfig config, RepositoryModel repo, UserModel user, String refName, RefType rType, boolean isFF,
+			String oldId, String newId, CommitRange commits, int pushes) throws IOException {
+		String shortRef = Repository.shortenRefName(refName);
+		String repoUrl = getUrl(config, repo.name, null, null);
 
 		String author;
-    	if (postAsUser) {
+    	if (config.postAsUser) {
     		// posting as user, do not BOLD username
     		author = user.getDisplayName();
     	} else {
@@ -190,24 +307,19 @@ public class SlackReceiveHook extends ReceiveHook {
     		author = "*" + user.getDisplayName() + "*";
     	}
 
-		List<RevCommit> commits = null;
 		String action;
 		String url;
 		switch (rType) {
 		case TAG:
-			url = getUrl(repo.name, null, shortRef);
+			url = getUrl(config, repo.name, null, shortRef);
 			action = "*MOVED* tag";
 			break;
 		default:
 			// log url
-			url = getUrl(repo.name, shortRef, null);
+			url = getUrl(config, repo.name, shortRef, null);
 			if (isFF) {
-				commits = getCommits(receivePack, cmd.getOldId().name(), cmd.getNewId().name());
-				if (commits.size() == 1) {
-					action = "pushed 1 commit to";
-				} else {
-					action = String.format("pushed %d commits to", commits.size());
-				}
+				String inPushes = pushes > 1 ? String.format(" in %d pushes", pushes) : "";
+				action = String.format("pushed %s%s to", commits.getCountText(), inPushes);
 			} else {
 				action = "*REWRITTEN*";
 			}
@@ -222,41 +334,176 @@ public class SlackReceiveHook extends ReceiveHook {
 		if (commits != null) {
 			// abbreviated commit list
 			sb.append("\n\n");
-			int shortIdLen = receivePack.getGitblit().getSettings().getInteger(Keys.web.shortCommitIdLength, 6);
-			int maxCommits = 5;
-			for (int i = 0; i < Math.min(maxCommits, commits.size()); i++) {
-				RevCommit commit = commits.get(i);
-				String commitUrl = getUrl(repo.name, null, commit.getName());
-				String shortId = commit.getName().substring(0, shortIdLen);
-				String shortMessage = StringUtils.trimString(commit.getShortMessage(), Constants.LEN_SHORTLOG);
-				String row = String.format("<%s|`%s`> %s\n",
-						commitUrl, shortId, shortMessage);
-				sb.append(row);
-			}
+			appendCommits(config, sb, repo, oldId, newId, commits);
+		}
+
+    	Payload payload = Payload.instance(sb.toString());
+    	attribute(config, payload, user);
 
-			// compare link
-			if (commits.size() > 1) {
-				String compareUrl = getUrl(repo.name, cmd.getOldId().getName(), cmd.getNewId().getName());
-				String compareText;
-				if (commits.size() > maxCommits) {
-					int diff = commits.size() - maxCommits;
-					if (diff == 1) {
-						compareText = "1 more commit";
-					} else {
-						compareText = String.format("%d more commits", diff);
-					}
+    	slacker.setChannel(config, repo, payload);
+    	slacker.sendAsync(payload, repo, getEventType(rType));
+	}
+
+	/**
+	 * Appends an abbreviated commit list and a compare link.
+	 *
+	 * @param config
+	 * @param sb
+	 * @param repo
+	 * @param oldId
+	 * @param newId
+	 * @param commits the newest commits of the update
+	 */
+	protected void appendCommits(SlackConfig config, StringBuilder sb, RepositoryModel repo, String oldId, String newId,
+			CommitRange commits) {
+		int shortIdLen = config.shortCommitIdLength;
+		int maxCommits = getMaxCommits();
+		for (int i = 0; i < Math.min(maxCommits, commits.commits.size()); i++) {
+			CommitSummary commit = commits.commits.get(i);
+			String commitUrl = getUrl(config, repo.name, null, commit.id);
+			String shortId = commit.id.substring(0, shortIdLen);
+			String row = String.format("<%s|`%s`> %s\n",
+					commitUrl, shortId, commit.shortMessage);
+			sb.append(row);
+		}
+
+		// compare link
+		int total = commits.total;
+		if (total > 1) {
+			String compareUrl = getUrl(config, repo.name, oldId, newId);
+			String compareText;
+			if (total > maxCommits) {
+				int diff = total - maxCommits;
+				if (commits.capped) {
+					compareText = String.format("%d+ more commits", diff);
+				} else if (diff == 1) {
+					compareText = "1 more commit";
 				} else {
-					compareText = String.format("view comparison of these %s commits", commits.size());
+					compareText = String.format("%d more commits", diff);
 				}
-				sb.append(String.format("<%s|%s>", compareUrl, compareText));
+			} else {
+				compareText = String.format("view comparison of these %s commits", total);
 			}
+			sb.append(String.format("<%s|%s>", compareUrl, compareText));
 		}
+	}
 
-    	Payload payload = Payload.instance(sb.toString());
-    	attribute(payload, user);
+	/**
+	 * Returns the number of commits listed in a push message.
+	 *
+	 * @return the number of commits to list
+	 */
+	protected int getMaxCommits() {
+		return 5;
+	}
 
-    	slacker.setChannel(repo, payload);
-    	slacker.sendAsync(payload);
+	/**
+	 * Sends all ref changes of a push as a single Slack message with one
+	 * attachment per group of similar ref changes.
+	 *
+	 * @param config
+	 * @param receivePack
+	 * @param commands
+	 */
+	protected void sendBatch(SlackConfig config, GitblitReceivePack receivePack, List<ReceiveCommand> commands) throws IOException {
+		UserModel user = receivePack.getUserModel();
+		RepositoryModel repo = receivePack.getRepositoryModel();
+		String repoUrl = getUrl(config, repo.name, null, null);
+		String author;
+    	if (config.postAsUser) {
+    		// posting as user, do not BOLD username
+    		author = user.getDisplayName();
+    	} else {
+    		// posting as Gitblit, BOLD username to draw attention
+    		author = "*" + user.getDisplayName() + "*";
+    	}
+
+		String msg = String.format("%s has pushed %d ref changes to <%s|%s>", author,
+				commands.size(), repoUrl, StringUtils.stripDotGit(repo.name));
+		PushBatch batch = new PushBatch(msg, slacker.getPayloadSplitter().maxSize);
+
+		// a batch with any branch changes is routed as a push
+		EventType type = EventType.TAG;
+		PushCoalescer coalescer = slacker.getPushCoalescer();
+		for (ReceiveCommand cmd : commands) {
+			if (coalescer != null) {
+				// send the pending digest of this ref ahead of this batch
+				coalescer.flush(repo, cmd.getRefName());
+			}
+
+			RefType rType = getRefType(cmd);
+			if (RefType.BRANCH == rType) {
+				type = EventType.PUSH;
+			}
+			String types = RefType.TAG == rType ? "tags" : "branches";
+			String shortRef = Repository.shortenRefName(cmd.getRefName());
+			String oldId = cmd.getOldId().getName();
+			String newId = cmd.getNewId().getName();
+			String logUrl = getUrl(config, repo.name, shortRef, null);
+
+			switch (cmd.getType()) {
+			case CREATE:
+				batch.add("created " + types,
+						String.format("<%s|%s>", logUrl, shortRef));
+				break;
+			case UPDATE:
+				if (RefType.TAG == rType) {
+					batch.add("moved tags", String.format("<%s|%s>", getUrl(config, repo.name, null, shortRef), shortRef));
+					break;
+				}
+				CommitRange commits = getCommits(config, receivePack, oldId, newId);
+				StringBuilder sb = new StringBuilder();
+				sb.append(String.format("<%s|%s> %s\n", logUrl, shortRef, commits.getCountText()));
+				appendCommits(config, sb, repo, oldId, newId, commits);
+				batch.add("updated branches", sb.toString().trim());
+				break;
+			case UPDATE_NONFASTFORWARD:
+				batch.add("rewritten " + types,
+						String.format("<%s|%s>", logUrl, shortRef));
+				break;
+			case DELETE:
+				batch.add("deleted " + types,
+						String.format("*%s*", shortRef));
+				break;
+			default:
+				break;
+			}
+		}
+
+		for (Payload payload : batch.build()) {
+			attribute(config, payload, user);
+			slacker.setChannel(config, repo, payload);
+			slacker.sendAsync(payload, repo, type);
+		}
+	}
+
+	/**
+	 * Adds the ref changes of a push to the digest of a channel.  Deleted
+	 * refs are not reported in digests.
+	 *
+	 * @param config
+	 * @param receivePack
+	 * @param commands
+	 * @param digest
+	 * @param channel the resolved channel
+	 */
+	protected void addToDigest(SlackConfig config, GitblitReceivePack receivePack, List<ReceiveCommand> commands,
+			DigestEngine digest, String channel) {
+		UserModel user = receivePack.getUserModel();
+		RepositoryModel repo = receivePack.getRepositoryModel();
+		String repoUrl = getUrl(config, repo.name, null, null);
+		for (ReceiveCommand cmd : commands) {
+			if (ReceiveCommand.Type.DELETE == cmd.getType()) {
+				continue;
+			}
+			RefType rType = getRefType(cmd);
+			int commits = 0;
+			if (RefType.BRANCH == rType && ReceiveCommand.Type.UPDATE == cmd.getType()) {
+				commits = getCommits(config, receivePack, cmd.getOldId().getName(), cmd.getNewId().getName()).total;
+			}
+			digest.addPush(channel, repo.name, repo.projectPath, repoUrl, user.getDisplayName(),
+					Repository.shortenRefName(cmd.getRefName()), RefType.TAG == rType, commits);
+		}
 	}
 
 	/**
@@ -267,14 +514,24 @@ public class SlackReceiveHook extends ReceiveHook {
 	 * @param rType
 	 */
 	protected void sendDelete(GitblitReceivePack receivePack, ReceiveCommand cmd, RefType rType) throws IOException {
+		sendDelete(slacker.getConfig(), receivePack, cmd, rType);
+	}
+
+	/**
+	 * Sends a Slack message when a branch or a tag is deleted.
+	 *
+	 * @param config
+	 * @param receivePack
+	 * @param cmd
+	 * @param rType
+	 */
+	protected void sendDelete(SlackConfig config, GitblitReceivePack receivePack, ReceiveCommand cmd, RefType rType) throws IOException {
 		UserModel user = receivePack.getUserModel();
 		RepositoryModel repo = receivePack.getRepositoryModel();
 		String shortRef = Repository.shortenRefName(cmd.getRefName());
-		String repoUrl = getUrl(repo.name, null, null);
-		boolean postAsUser = receivePack.getGitblit().getSettings().getBoolean(Plugin.SETTING_POST_AS_USER, true);
-
+		String repoUrl = getUrl(config, repo.name, null, null);
 		String author;
-    	if (postAsUser) {
+    	if (config.postAsUser) {
     		// posting as user, do not BOLD username
     		author = user.getDisplayName();
     	} else {
@@ -286,10 +543,10 @@ public class SlackReceiveHook extends ReceiveHook {
     			rType.name().toLowerCase(), shortRef, repoUrl, StringUtils.stripDotGit(repo.name));
 
     	Payload payload = Payload.instance(msg);
-    	attribute(payload, user);
+    	attribute(config, payload, user);
 
-    	slacker.setChannel(repo, payload);
-    	slacker.sendAsync(payload);
+    	slacker.setChannel(config, repo, payload);
+    	slacker.sendAsync(payload, repo, getEventType(rType));
 	}
 
 	/**
@@ -299,19 +556,25 @@ public class SlackReceiveHook extends ReceiveHook {
 	 * @param user
 	 */
 	protected void attribute(Payload payload, UserModel user) {
-		IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
-    	String icon = runtimeManager.getSettings().getString(Plugin.SETTING_GIT_EMOJI, null);
-    	String defaultIcon = runtimeManager.getSettings().getString(Plugin.SETTING_DEFAULT_EMOJI, null);
-    	if (StringUtils.isEmpty(icon)) {
-    		icon = defaultIcon;
-    	}
+		attribute(slacker.getConfig(), payload, user);
+	}
+
+	/**
+	 * Optionally stamp the payload with an emoji, icon url, or user attributions.
+	 *
+	 * @param config
+	 * @param payload
+	 * @param user
+	 */
+	protected void attribute(SlackConfig config, Payload payload, UserModel user) {
+    	String icon = config.getGitEmoji();
 
     	// set the username and gravatar
-    	boolean postAsUser = runtimeManager.getSettings().getBoolean(Plugin.SETTING_POST_AS_USER, true);
-    	if (postAsUser) {
-    		payload.username(user.getDisplayName());
-    		if (!StringUtils.isEmpty(user.emailAddress)) {
-    			icon = ActivityUtils.getGravatarThumbnailUrl(user.emailAddress, 36);
+    	if (config.postAsUser) {
+    		CachedUser cached = slacker.getUser(user);
+    		payload.username(cached.displayName);
+    		if (cached.gravatarUrl != null) {
+    			icon = cached.gravatarUrl;
     		}
 		}
 
@@ -329,8 +592,22 @@ public class SlackReceiveHook extends ReceiveHook {
      * @return a link
      */
     protected String getUrl(String repo, String oldId, String newId) {
-    	IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
-		String canonicalUrl = runtimeManager.getSettings().getString(Keys.web.canonicalUrl, "https://localhost:8443");
+    	return getUrl(slacker.getConfig(), repo, oldId, newId);
+    }
+
+    /**
+     * Returns a link appropriate for the push.
+     *
+     * If both new and old ids are null, the summary page link is returned.
+     *
+     * @param config
+     * @param repo
+     * @param oldId
+     * @param newId
+     * @return a link
+     */
+    protected String getUrl(SlackConfig config, String repo, String oldId, String newId) {
+		String canonicalUrl = config.canonicalUrl;
 
 		if (oldId == null && newId != null) {
 			// create
@@ -353,27 +630,26 @@ public class SlackReceiveHook extends ReceiveHook {
 		return null;
     }
 
-    private List<RevCommit> getCommits(GitblitReceivePack receivePack, String baseId, String tipId) {
-    	List<RevCommit> list = new ArrayList<RevCommit>();
-		try (RevWalk walk = receivePack.getRevWalk()) {
-			walk.reset();
-			walk.sort(RevSort.TOPO);
-			RevCommit tip = walk.parseCommit(receivePack.getRepository().resolve(tipId));
-			RevCommit base = walk.parseCommit(receivePack.getRepository().resolve(baseId));
-			walk.markStart(tip);
-			walk.markUninteresting(base);
-			for (;;) {
-				RevCommit c = walk.next();
-				if (c == null) {
-					break;
-				}
-				list.add(c);
-			}
+    /**
+     * Returns the newest commits of a push and the number of pushed commits.
+     * The walk stops counting at the configured walk limit.
+     *
+     * @param config
+     * @param receivePack
+     * @param baseId
+     * @param tipId
+     * @return the commit range
+     */
+    private CommitRange getCommits(SlackConfig config, GitblitReceivePack receivePack, String baseId, String tipId) {
+		try {
+			Repository db = receivePack.getRepository();
+			return CommitRange.walk(receivePack.getRevWalk(), db.resolve(baseId), db.resolve(tipId),
+					getMaxCommits(), false, null, config.commitWalkLimit);
 		} catch (IOException e) {
 			// Should never happen, the core receive process would have
 			// identified the missing object earlier before we got control.
 			log.error("failed to get commits", e);
 		}
-		return list;
+		return new CommitRange(new ArrayList<CommitSummary>(), 0, false);
 	}
-}
\ No newline at end of file
+}
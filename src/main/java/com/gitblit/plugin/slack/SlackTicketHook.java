@@ -26,11 +26,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.pegdown.ParsingTimeoutException;
 import org.pegdown.PegDownProcessor;
@@ -40,24 +40,20 @@ import org.slf4j.LoggerFactory;
 
 import ro.fortsoft.pf4j.Extension;
 
-import com.gitblit.Constants;
-import com.gitblit.IStoredSettings;
-import com.gitblit.Keys;
 import com.gitblit.extensions.TicketHook;
 import com.gitblit.manager.IGitblit;
 import com.gitblit.manager.IRepositoryManager;
 import com.gitblit.manager.IRuntimeManager;
-import com.gitblit.manager.IUserManager;
 import com.gitblit.models.RepositoryModel;
 import com.gitblit.models.TicketModel;
 import com.gitblit.models.TicketModel.Change;
 import com.gitblit.models.TicketModel.Patchset;
 import com.gitblit.models.UserModel;
+import com.gitblit.plugin.slack.UserCache.CachedUser;
 import com.gitblit.plugin.slack.entity.Attachment;
 import com.gitblit.plugin.slack.entity.Field;
 import com.gitblit.plugin.slack.entity.Payload;
 import com.gitblit.servlet.GitblitContext;
-import com.gitblit.utils.ActivityUtils;
 import com.gitblit.utils.StringUtils;
 
 /**
@@ -75,7 +71,12 @@ public class SlackTicketHook extends TicketHook {
 
 	final Slacker slacker;
 
-	final IStoredSettings settings;
+	/**
+	 * PegDown processors are expensive to create and are not thread-safe.
+	 */
+	final Queue<PegDownProcessor> processors;
+
+	private volatile MarkdownLinker linker;
 
 	public SlackTicketHook() {
 		super();
@@ -84,31 +85,140 @@ public class SlackTicketHook extends TicketHook {
 		Slacker.init(runtimeManager);
     	slacker = Slacker.instance();
 
-    	settings = runtimeManager.getSettings();
+    	processors = new ConcurrentLinkedQueue<PegDownProcessor>();
+	}
+
+	/**
+	 * Creates a hook which posts through the given manager.
+	 *
+	 * @param slacker
+	 */
+	SlackTicketHook(Slacker slacker) {
+		super();
+
+		this.slacker = slacker;
+		this.processors = new ConcurrentLinkedQueue<PegDownProcessor>();
 	}
 
     @Override
     public void onNewTicket(TicketModel ticket) {
-    	if (!shallPost(ticket)) {
+    	if (!slacker.isStarted()) {
+    		return;
+    	}
+    	final SlackConfig config = slacker.getConfig();
+    	if (!shallPost(config, ticket)) {
+			return;
+		}
+
+    	if (addToDigest(config, ticket, ticket.changes.get(0), true)) {
+    		return;
+    	}
+
+    	final TicketEvent event = TicketEvent.of(ticket, ticket.changes.get(0));
+    	slacker.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postNewTicket(config, event.ticket);
+				} catch (Exception e) {
+					log.error("Failed to notify Slack of new ticket " + event.ticket.number, e);
+				}
+			}
+		});
+    }
+
+    @Override
+    public void onUpdateTicket(TicketModel ticket, Change change) {
+    	if (!slacker.isStarted()) {
+    		return;
+    	}
+    	final SlackConfig config = slacker.getConfig();
+    	if (!shallPost(config, ticket)) {
 			return;
 		}
 
+    	if (addToDigest(config, ticket, change, false)) {
+    		return;
+    	}
+
+    	final TicketEvent event = TicketEvent.of(ticket, change);
+    	slacker.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					postUpdateTicket(config, event.ticket, event.change);
+				} catch (Exception e) {
+					log.error("Failed to notify Slack of ticket update " + event.ticket.number, e);
+				}
+			}
+		});
+    }
+
+    /**
+     * Adds a ticket event to the digest of its channel, if the channel
+     * receives digests.
+     *
+     * @param config
+     * @param ticket
+     * @param change
+     * @param isNew true if the ticket was created
+     * @return true if the event was added to a digest
+     */
+    protected boolean addToDigest(SlackConfig config, TicketModel ticket, Change change, boolean isNew) {
+    	DigestEngine digest = slacker.getDigestEngine();
+    	if (digest == null) {
+    		return false;
+    	}
+
+		RepositoryModel repository = getRepositoryModel(ticket.repository);
+		String channel = slacker.getChannel(config, repository);
+		String project = repository == null ? null : repository.projectPath;
+		if (!digest.accepts(channel, ticket.repository, project)) {
+			return false;
+		}
+
+		DigestEngine.Action action;
+		if (isNew) {
+			action = DigestEngine.Action.OPENED;
+		} else if (change.getStatus() != null && change.getStatus().isClosed()) {
+			action = DigestEngine.Action.CLOSED;
+		} else {
+			action = DigestEngine.Action.UPDATED;
+		}
+		digest.addTicket(channel, ticket.repository, project, getUrl(config, ticket.repository, null, null),
+				ticket.number, ticket.title, getUrl(ticket), action);
+		return true;
+    }
+
+    /**
+     * Sends a Slack message for a new ticket.
+     *
+     * @param ticket
+     */
+    protected void postNewTicket(TicketModel ticket) {
+    	postNewTicket(slacker.getConfig(), ticket);
+    }
+
+    /**
+     * Sends a Slack message for a new ticket.
+     *
+     * @param config
+     * @param ticket
+     */
+    protected void postNewTicket(SlackConfig config, TicketModel ticket) {
 		Set<TicketModel.Field> fieldExclusions = new HashSet<TicketModel.Field>();
 		fieldExclusions.addAll(Arrays.asList(TicketModel.Field.watchers, TicketModel.Field.voters,
 				TicketModel.Field.status, TicketModel.Field.mentions));
 
     	Change change = ticket.changes.get(0);
-    	IUserManager userManager = GitblitContext.getManager(IUserManager.class);
-    	boolean postAsUser = settings.getBoolean(Plugin.SETTING_POST_AS_USER, true);
-
-    	UserModel user = userManager.getUserModel(change.author);
+    	CachedUser user = slacker.getUser(change.author);
     	String author;
-    	if (postAsUser) {
+    	if (config.postAsUser) {
     		// posting as user, do not BOLD username
-    		author = user.getDisplayName();
+    		author = user.displayName;
     	} else {
     		// posting as Gitblit, BOLD username to draw attention
-    		author = "*" + user.getDisplayName() + "*";
+    		author = "*" + user.displayName + "*";
     	}
 
     	String msg = String.format("%s has created *%s* <%s|ticket-%s>", author,
@@ -116,33 +226,44 @@ public class SlackTicketHook extends TicketHook {
 
     	Payload payload = Payload
     			.instance(msg)
-                .attachments(fields(ticket, change, fieldExclusions));
-    	attribute(payload, user);
+                .attachments(fields(config, ticket, change, fieldExclusions));
+    	attribute(config, payload, user);
 
-   		slacker.sendAsync(payload);
+		RepositoryModel repository = getRepositoryModel(ticket.repository);
+   		slacker.sendAsync(payload, repository, EventType.TICKET);
     }
 
-    @Override
-    public void onUpdateTicket(TicketModel ticket, Change change) {
-    	if (!shallPost(ticket)) {
-			return;
-		}
+    /**
+     * Sends a Slack message for a ticket change.
+     *
+     * @param ticket
+     * @param change
+     */
+    protected void postUpdateTicket(TicketModel ticket, Change change) {
+    	postUpdateTicket(slacker.getConfig(), ticket, change);
+    }
+
+    /**
+     * Sends a Slack message for a ticket change.
+     *
+     * @param config
+     * @param ticket
+     * @param change
+     */
+    protected void postUpdateTicket(SlackConfig config, TicketModel ticket, Change change) {
 		Set<TicketModel.Field> fieldExclusions = new HashSet<TicketModel.Field>();
 		fieldExclusions.addAll(Arrays.asList(TicketModel.Field.watchers, TicketModel.Field.voters,
 				TicketModel.Field.mentions, TicketModel.Field.title, TicketModel.Field.body,
 				TicketModel.Field.mergeSha));
 
-		IUserManager userManager = GitblitContext.getManager(IUserManager.class);
-    	boolean postAsUser = settings.getBoolean(Plugin.SETTING_POST_AS_USER, true);
-
-		UserModel user = userManager.getUserModel(change.author);
+		CachedUser user = slacker.getUser(change.author);
 		String author;
-    	if (postAsUser) {
+    	if (config.postAsUser) {
     		// posting as user, do not BOLD username
-    		author = user.getDisplayName();
+    		author = user.displayName;
     	} else {
     		// posting as Gitblit, BOLD username to draw attention
-    		author = "*" + user.getDisplayName() + "*";
+    		author = "*" + user.displayName + "*";
     	}
 
 		String url = String.format("<%s|ticket-%s>", getUrl(ticket), ticket.number);
@@ -191,33 +312,33 @@ public class SlackTicketHook extends TicketHook {
 			sb.append(leadIn);
 
 			// abbreviated commit list
-			List<RevCommit> commits = getCommits(ticket.repository, base, tip);
-			sb.append("\n\n");
-			int shortIdLen = settings.getInteger(Keys.web.shortCommitIdLength, 6);
 			int maxCommits = 5;
-			for (int i = 0; i < Math.min(maxCommits, commits.size()); i++) {
-				RevCommit commit = commits.get(i);
-				String commitUrl = getUrl(ticket.repository, null, commit.getName());
-				String shortId = commit.getName().substring(0, shortIdLen);
-				String shortMessage = StringUtils.trimString(commit.getShortMessage(), Constants.LEN_SHORTLOG);
+			CommitRange commits = getCommits(config, ticket.repository, base, tip, maxCommits);
+			sb.append("\n\n");
+			int shortIdLen = config.shortCommitIdLength;
+			for (CommitSummary commit : commits.commits) {
+				String commitUrl = getUrl(config, ticket.repository, null, commit.id);
+				String shortId = commit.id.substring(0, shortIdLen);
 				String row = String.format("<%s|`%s`> %s\n",
-						commitUrl, shortId, shortMessage);
+						commitUrl, shortId, commit.shortMessage);
 				sb.append(row);
 			}
 
 			// compare link
-			if (commits.size() > 1) {
-				String compareUrl = getUrl(ticket.repository, base, tip);
+			if (commits.total > 1) {
+				String compareUrl = getUrl(config, ticket.repository, base, tip);
 				String compareText;
-				if (commits.size() > maxCommits) {
-					int diff = commits.size() - maxCommits;
-					if (diff == 1) {
+				if (commits.total > maxCommits) {
+					int diff = commits.total - maxCommits;
+					if (commits.capped) {
+						compareText = String.format("%d+ more commits", diff);
+					} else if (diff == 1) {
 						compareText = "1 more commit";
 					} else {
 						compareText = String.format("%d more commits", diff);
 					}
 				} else {
-					compareText = String.format("view comparison of these %s commits", commits.size());
+					compareText = String.format("view comparison of these %s commits", commits.total);
 				}
 				sb.append("\n");
 				sb.append(String.format("<%s|%s>", compareUrl, compareText));
@@ -234,7 +355,7 @@ public class SlackTicketHook extends TicketHook {
 			 * Status Change
 			 */
 			msg = String.format("%s has changed the status of %s %s", author, repo, url);
-		} else if (change.hasComment() && settings.getBoolean(Plugin.SETTING_POST_TICKET_COMMENTS, true)) {
+		} else if (change.hasComment() && config.postTicketComments) {
 			/*
 			 * Comment
 			 */
@@ -248,13 +369,12 @@ public class SlackTicketHook extends TicketHook {
 
 		Payload payload = Payload
 				.instance(msg)
-				.attachments(fields(ticket, change, fieldExclusions));
-		attribute(payload, user);
+				.attachments(fields(config, ticket, change, fieldExclusions));
+		attribute(config, payload, user);
 
-		IRepositoryManager repositoryManager = GitblitContext.getManager(IRepositoryManager.class);
-		RepositoryModel repository = repositoryManager.getRepositoryModel(ticket.repository);
-   		slacker.setChannel(repository, payload);
-   		slacker.sendAsync(payload);
+		RepositoryModel repository = getRepositoryModel(ticket.repository);
+   		slacker.setChannel(config, repository, payload);
+   		slacker.sendAsync(payload, repository, EventType.TICKET);
     }
 
 	/**
@@ -264,19 +384,24 @@ public class SlackTicketHook extends TicketHook {
 	 * @param user
 	 */
 	protected void attribute(Payload payload, UserModel user) {
-		IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
-    	String icon = runtimeManager.getSettings().getString(Plugin.SETTING_TICKET_EMOJI, null);
-    	String defaultIcon = runtimeManager.getSettings().getString(Plugin.SETTING_DEFAULT_EMOJI, null);
-    	if (StringUtils.isEmpty(icon)) {
-    		icon = defaultIcon;
-    	}
+		attribute(slacker.getConfig(), payload, slacker.getUser(user));
+	}
+
+	/**
+	 * Optionally stamp the payload with an emoji, icon url, or user attributions.
+	 *
+	 * @param config
+	 * @param payload
+	 * @param user
+	 */
+	protected void attribute(SlackConfig config, Payload payload, CachedUser user) {
+    	String icon = config.getTicketEmoji();
 
     	// set the username and gravatar
-    	boolean postAsUser = runtimeManager.getSettings().getBoolean(Plugin.SETTING_POST_AS_USER, true);
-    	if (postAsUser) {
-    		payload.username(user.getDisplayName());
-    		if (!StringUtils.isEmpty(user.emailAddress)) {
-    			icon = ActivityUtils.getGravatarThumbnailUrl(user.emailAddress, 36);
+    	if (config.postAsUser) {
+    		payload.username(user.displayName);
+    		if (user.gravatarUrl != null) {
+    			icon = user.gravatarUrl;
     		}
 		}
 
@@ -284,6 +409,10 @@ public class SlackTicketHook extends TicketHook {
 	}
 
     protected Attachment fields(TicketModel ticket, Change change, Set<TicketModel.Field> fieldExclusions) {
+    	return fields(slacker.getConfig(), ticket, change, fieldExclusions);
+    }
+
+    protected Attachment fields(SlackConfig config, TicketModel ticket, Change change, Set<TicketModel.Field> fieldExclusions) {
     	Map<TicketModel.Field, String> filtered = new HashMap<TicketModel.Field, String>();
     	if (change.hasFieldChanges()) {
     		for (Map.Entry<TicketModel.Field, String> fc : change.fields.entrySet()) {
@@ -324,9 +453,9 @@ public class SlackTicketHook extends TicketHook {
     		default:
     			color = null;
     		}
-    	} else if (change.hasComment() && settings.getBoolean(Plugin.SETTING_POST_TICKET_COMMENTS, true)) {
+    	} else if (change.hasComment() && config.postTicketComments) {
     		// transform Markdown comment
-    		text = renderMarkdown(change.comment.text, ticket.repository);
+    		text = renderMarkdown(config, change.comment.text, ticket.repository);
     	}
 
     	// sort by field ordinal
@@ -348,7 +477,7 @@ public class SlackTicketHook extends TicketHook {
 
     				if (TicketModel.Field.body == field) {
     					// transform the body to Slack markup
-    					value = renderMarkdown(value, ticket.repository);
+    					value = renderMarkdown(config, value, ticket.repository);
     					isMrkdwn = true;
     				} else if (TicketModel.Field.responsible == field) {
     					// lookup display name of the user
@@ -365,6 +494,10 @@ public class SlackTicketHook extends TicketHook {
     }
 
     protected String renderMarkdown(String markdown, String repository) {
+    	return renderMarkdown(slacker.getConfig(), markdown, repository);
+    }
+
+    protected String renderMarkdown(SlackConfig config, String markdown, String repository) {
     	if (StringUtils.isEmpty(markdown)) {
     		return markdown;
     	}
@@ -388,7 +521,7 @@ public class SlackTicketHook extends TicketHook {
     			} else if (bq.length() > 0) {
     				// render blockquote by itself and reinject blockquote syntax
     				String quote = bq.toString();
-    				String rendered = renderMarkdown(quote, repository);
+    				String rendered = renderMarkdown(config, quote, repository);
     				bq.setLength(0);
     				StringBuilder rsb = new StringBuilder();
     				for (String rl : rendered.split("\n")) {
@@ -403,25 +536,18 @@ public class SlackTicketHook extends TicketHook {
     	String text = sb.toString();
 
     	try {
-    		IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
-    		String canonicalUrl = runtimeManager.getSettings().getString(Keys.web.canonicalUrl, "https://localhost:8443");
+    		text = getLinker(config).link(text, repository);
 
-    		// emphasize and link mentions
-    		String mentionReplacement = String.format(" **[@$1](%1s/user/$1)**", canonicalUrl);
-    		text = text.replaceAll("\\s@([A-Za-z0-9-_]+)", mentionReplacement);
-
-    		// link ticket refs
-    		String ticketReplacement = MessageFormat.format("$1[#$2]({0}/tickets?r={1}&h=$2)$3", canonicalUrl, repository);
-    		text = text.replaceAll("([\\s,]+)#(\\d+)([\\s,:\\.\\n])", ticketReplacement);
-
-    		// link commit shas
-    		int shaLen = settings.getInteger(Keys.web.shortCommitIdLength, 6);
-    		String commitPattern = MessageFormat.format("\\s([A-Fa-f0-9]'{'{0}'}')([A-Fa-f0-9]'{'{1}'}')", shaLen, 40 - shaLen);
-    		String commitReplacement = String.format(" [`$1`](%1$s/commit\\?r=%2$s&h=$1$2)", canonicalUrl, repository);
-    		text = text.replaceAll(commitPattern, commitReplacement);
-
-			PegDownProcessor pd = new PegDownProcessor(ALL & ~SMARTYPANTS);
-			RootNode astRoot = pd.parseMarkdown(text.toCharArray());
+			RootNode astRoot;
+			PegDownProcessor pd = processors.poll();
+			if (pd == null) {
+				pd = new PegDownProcessor(ALL & ~SMARTYPANTS);
+			}
+			try {
+				astRoot = pd.parseMarkdown(text.toCharArray());
+			} finally {
+				processors.offer(pd);
+			}
 			String slackMarkup = new SlackMarkupSerializer().toHtml(astRoot);
 			slackMarkup = slackMarkup.replace("<pre><code>", "```\n");
 			slackMarkup = slackMarkup.replace("</code></pre>", "```\n");
@@ -438,20 +564,30 @@ public class SlackTicketHook extends TicketHook {
 		}
     }
 
+    /**
+     * Returns the linker for the current canonical url and short commit id
+     * length, compiling a new one only when either setting changes.
+     *
+     * @return the linker
+     */
+    protected MarkdownLinker getLinker(SlackConfig config) {
+    	String canonicalUrl = config.canonicalUrl;
+    	int shaLen = config.shortCommitIdLength;
+    	MarkdownLinker current = linker;
+    	if (current == null || !current.matches(canonicalUrl, shaLen)) {
+    		current = new MarkdownLinker(canonicalUrl, shaLen);
+    		linker = current;
+    	}
+    	return current;
+    }
+
     protected String getDisplayName(String username) {
     	if (StringUtils.isEmpty(username)) {
     		return username;
     	}
 
-		IUserManager userManager = GitblitContext.getManager(IUserManager.class);
-		UserModel user = userManager.getUserModel(username);
-		if (user != null) {
-			String displayName = user.getDisplayName();
-			if (!StringUtils.isEmpty(displayName) && !username.equals(displayName)) {
-				return displayName;
-			}
-		}
-		return username;
+		CachedUser user = slacker.getUser(username);
+		return user.displayName;
     }
 
     /**
@@ -461,15 +597,23 @@ public class SlackTicketHook extends TicketHook {
      * @return true if the ticket should be posted to a Slack channel
      */
     protected boolean shallPost(TicketModel ticket) {
-    	IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
-    	boolean shallPostTicket = runtimeManager.getSettings().getBoolean(Plugin.SETTING_POST_TICKETS, true);
-    	if (!shallPostTicket) {
+    	return shallPost(slacker.getConfig(), ticket);
+    }
+
+    /**
+     * Determine if a ticket should be posted to a Slack channel.
+     *
+     * @param config
+     * @param ticket
+     * @return true if the ticket should be posted to a Slack channel
+     */
+    protected boolean shallPost(SlackConfig config, TicketModel ticket) {
+    	if (!config.postTickets) {
     		return false;
     	}
 
-		IRepositoryManager repositoryManager = GitblitContext.getManager(IRepositoryManager.class);
-		RepositoryModel repository = repositoryManager.getRepositoryModel(ticket.repository);
-		boolean shallPostRepo = slacker.shallPost(repository);
+		RepositoryModel repository = getRepositoryModel(ticket.repository);
+		boolean shallPostRepo = slacker.shallPost(config, repository);
 		return shallPostRepo;
     }
 
@@ -477,6 +621,11 @@ public class SlackTicketHook extends TicketHook {
     	return GitblitContext.getManager(IGitblit.class).getTicketService().getTicketUrl(ticket);
     }
 
+    protected RepositoryModel getRepositoryModel(String repository) {
+    	IRepositoryManager repositoryManager = GitblitContext.getManager(IRepositoryManager.class);
+    	return repositoryManager.getRepositoryModel(repository);
+    }
+
     /**
      * Returns a link appropriate for the push.
      *
@@ -488,8 +637,22 @@ public class SlackTicketHook extends TicketHook {
      * @return a link
      */
     protected String getUrl(String repo, String oldId, String newId) {
-    	IRuntimeManager runtimeManager = GitblitContext.getManager(IRuntimeManager.class);
-		String canonicalUrl = runtimeManager.getSettings().getString(Keys.web.canonicalUrl, "https://localhost:8443");
+    	return getUrl(slacker.getConfig(), repo, oldId, newId);
+    }
+
+    /**
+     * Returns a link appropriate for the push.
+     *
+     * If both new and old ids are null, the summary page link is returned.
+     *
+     * @param config
+     * @param repo
+     * @param oldId
+     * @param newId
+     * @return a link
+     */
+    protected String getUrl(SlackConfig config, String repo, String oldId, String newId) {
+		String canonicalUrl = config.canonicalUrl;
 
 		if (oldId == null && newId != null) {
 			// create
@@ -512,31 +675,36 @@ public class SlackTicketHook extends TicketHook {
 		return null;
     }
 
-	private List<RevCommit> getCommits(String repositoryName, String baseId, String tipId) {
+	/**
+	 * Returns the oldest commits of a range, oldest first, and the number of
+	 * commits in the range.  Ranges are cached per repository.
+	 *
+	 * @param config
+	 * @param repositoryName
+	 * @param baseId
+	 * @param tipId
+	 * @param maxCommits
+	 * @return the commit range
+	 */
+	private CommitRange getCommits(SlackConfig config, String repositoryName, String baseId, String tipId, int maxCommits) {
+		CommitCache.Summaries cache = slacker.getCommitCache().get(repositoryName);
+		CommitRange range = cache.getRange(baseId, tipId, maxCommits);
+		if (range != null) {
+			return range;
+		}
+
 		IRepositoryManager repositoryManager = GitblitContext.getManager(IRepositoryManager.class);
-		List<RevCommit> list = new ArrayList<RevCommit>();
 		try (Repository db = repositoryManager.getRepository(repositoryName)) {
 			try (RevWalk walk = new RevWalk(db)) {
-				walk.reset();
-				walk.sort(RevSort.TOPO);
-				walk.sort(RevSort.REVERSE, true);
-				RevCommit tip = walk.parseCommit(db.resolve(tipId));
-				RevCommit base = walk.parseCommit(db.resolve(baseId));
-				walk.markStart(tip);
-				walk.markUninteresting(base);
-				for (;;) {
-					RevCommit c = walk.next();
-					if (c == null) {
-						break;
-					}
-					list.add(c);
-				}
+				range = CommitRange.walk(walk, db.resolve(baseId), db.resolve(tipId), maxCommits, true, cache, config.commitWalkLimit);
+				cache.putRange(baseId, tipId, maxCommits, range);
+				return range;
 			} catch (IOException e) {
 				// Should never happen, the core receive process would have
 				// identified the missing object earlier before we got control.
 				log.error("failed to get commits", e);
 			}
 		}
-		return list;
+		return new CommitRange(new ArrayList<CommitSummary>(), 0, false);
 	}
-}
\ No newline at end of file
+}
@@ -15,26 +15,32 @@
  */
 package com.gitblit.plugin.slack;
 
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.params.AllClientPNames;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.params.CoreProtocolPNames;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,10 +48,11 @@ import com.gitblit.Constants;
 import com.gitblit.manager.IManager;
 import com.gitblit.manager.IRuntimeManager;
 import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.UserModel;
+import com.gitblit.plugin.slack.RetryPolicy.ErrorClass;
+import com.gitblit.plugin.slack.UserCache.CachedUser;
 import com.gitblit.plugin.slack.entity.Payload;
 import com.gitblit.utils.StringUtils;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 
 /**
  * Configures the final payload and sends a Slack message.
@@ -55,13 +62,39 @@ import com.google.gson.GsonBuilder;
  */
 public class Slacker implements IManager {
 
+	private static final long MAX_RATE_LIMIT_WAIT = TimeUnit.SECONDS.toMillis(30);
+
+	private static final long SEND_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+
 	private static Slacker instance;
 
 	final Logger log = LoggerFactory.getLogger(getClass());
 
 	final IRuntimeManager runtimeManager;
 
-	final ExecutorService taskPool;
+	private volatile List<Destination> destinations;
+
+	private ScheduledExecutorService scheduler;
+
+	private volatile ThreadPoolExecutor eventExecutor;
+
+	private final Map<ErrorClass, RetryPolicy> retryPolicies;
+
+	private volatile PushCoalescer pushCoalescer;
+
+	private volatile Deduplicator deduplicator;
+
+	private volatile DigestEngine digestEngine;
+
+	private volatile PayloadSplitter payloadSplitter;
+
+	private final AtomicReference<SlackConfig> config;
+
+	private volatile UserCache userCache;
+
+	private final CommitCache commitCache;
+
+	private final SlackMetrics metrics;
 
 	public static void init(IRuntimeManager manager) {
 		if (instance == null) {
@@ -75,20 +108,649 @@ public class Slacker implements IManager {
 
 	Slacker(IRuntimeManager runtimeManager) {
 		this.runtimeManager = runtimeManager;
-		this.taskPool = Executors.newCachedThreadPool();
+		this.retryPolicies = new EnumMap<ErrorClass, RetryPolicy>(ErrorClass.class);
+		this.config = new AtomicReference<SlackConfig>();
+		this.commitCache = new CommitCache(32, 256);
+		this.metrics = new SlackMetrics(this);
 	}
 
 	@Override
-	public Slacker start() {
+	public synchronized Slacker start() {
+		reloadConfig();
+
+		if (destinations == null) {
+			File folder = runtimeManager.getFileOrFolder(Plugin.SETTING_OUTBOX_FOLDER, "${baseFolder}/slack/outbox");
+			List<Destination> list = Destination.load(runtimeManager.getSettings());
+			for (Destination destination : list) {
+				destination.start(this, runtimeManager.getSettings(), folder);
+			}
+			destinations = list;
+		}
+
+		if (retryPolicies.isEmpty()) {
+			for (ErrorClass errorClass : ErrorClass.values()) {
+				retryPolicies.put(errorClass, RetryPolicy.of(runtimeManager.getSettings(), errorClass));
+			}
+		}
+
+		int coalesceWindow = runtimeManager.getSettings().getInteger(Plugin.SETTING_COALESCE_WINDOW, 0);
+		int dedupWindow = runtimeManager.getSettings().getInteger(Plugin.SETTING_DEDUP_WINDOW, 0);
+		if (deduplicator == null && dedupWindow > 0) {
+			int capacity = runtimeManager.getSettings().getInteger(Plugin.SETTING_DEDUP_CAPACITY, 1024);
+			deduplicator = new Deduplicator(capacity, TimeUnit.SECONDS.toMillis(dedupWindow));
+		}
+
+		if (pushCoalescer == null && coalesceWindow > 0) {
+			pushCoalescer = new PushCoalescer(this, TimeUnit.SECONDS.toMillis(coalesceWindow));
+		}
+
+		if (payloadSplitter == null) {
+			int maxSize = runtimeManager.getSettings().getInteger(Plugin.SETTING_MAX_PAYLOAD_SIZE, PayloadSplitter.DEFAULT_MAX_SIZE);
+			int maxParts = runtimeManager.getSettings().getInteger(Plugin.SETTING_MAX_PAYLOAD_PARTS, PayloadSplitter.DEFAULT_MAX_PARTS);
+			payloadSplitter = new PayloadSplitter(Math.max(1024, maxSize), maxParts);
+		}
+
+		if (digestEngine == null) {
+			File file = runtimeManager.getFileOrFolder(Plugin.SETTING_DIGEST_FILE, "${baseFolder}/slack/digest.json");
+			digestEngine = DigestEngine.of(this, runtimeManager.getSettings(), file, destinations);
+		}
+
+		if (userCache == null) {
+			int size = runtimeManager.getSettings().getInteger(Plugin.SETTING_USER_CACHE_SIZE, 1000);
+			int ttl = runtimeManager.getSettings().getInteger(Plugin.SETTING_USER_CACHE_TTL, 300);
+			userCache = new UserCache(this, Math.max(1, size), TimeUnit.SECONDS.toMillis(ttl));
+		}
+
+		if (eventExecutor == null) {
+			int capacity = runtimeManager.getSettings().getInteger(Plugin.SETTING_EVENT_QUEUE_CAPACITY, 100);
+			int threads = Math.max(1, runtimeManager.getSettings().getInteger(Plugin.SETTING_EVENT_THREADS, 1));
+			eventExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(Math.max(1, capacity)),
+					new DaemonThreadFactory("slack-events"));
+			eventExecutor.allowCoreThreadTimeOut(true);
+
+			log.debug("Slack event stage started (capacity={}, threads={})", capacity, threads);
+		}
+
+		if (runtimeManager.getSettings().getBoolean(Plugin.SETTING_JMX, false)) {
+			metrics.register();
+		}
+
+		if (scheduler == null) {
+			int configInterval = Math.max(1, runtimeManager.getSettings().getInteger(Plugin.SETTING_CONFIG_REFRESH_INTERVAL, 30));
+			int drainInterval = Math.max(1, runtimeManager.getSettings().getInteger(Plugin.SETTING_OUTBOX_DRAIN_INTERVAL, 5));
+			scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("slack-scheduler"));
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					drain();
+				}
+			}, 0, drainInterval, TimeUnit.SECONDS);
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					reloadConfig();
+				}
+			}, configInterval, configInterval, TimeUnit.SECONDS);
+			scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					DigestEngine digest = digestEngine;
+					if (digest != null) {
+						digest.tick();
+					}
+				}
+			}, 30, 30, TimeUnit.SECONDS);
+		}
 		return this;
 	}
 
 	@Override
-	public Slacker stop() {
-		this.taskPool.shutdown();
+	public synchronized Slacker stop() {
+		if (pushCoalescer != null) {
+			// queue the pending digests before the outbox is closed
+			pushCoalescer.flushAll();
+			pushCoalescer = null;
+		}
+		deduplicator = null;
+		if (eventExecutor != null) {
+			// let accepted events reach the outbox
+			eventExecutor.shutdown();
+			try {
+				if (!eventExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+					log.warn("Discarding {} unprocessed Slack events", eventExecutor.shutdownNow().size());
+				}
+			} catch (InterruptedException e) {
+				eventExecutor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			eventExecutor = null;
+		}
+		if (digestEngine != null) {
+			// pending digests are reloaded and sent after a restart
+			digestEngine.save();
+			digestEngine = null;
+		}
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		if (destinations != null) {
+			for (Destination destination : destinations) {
+				destination.stop();
+			}
+			destinations = null;
+		}
+		retryPolicies.clear();
+		userCache = null;
+		payloadSplitter = null;
+		metrics.unregister();
 		return this;
 	}
 
+	/**
+	 * Returns the current settings snapshot.  Callers should read the snapshot
+	 * once per event and use it for the whole event.
+	 *
+	 * @return the settings snapshot
+	 */
+	public SlackConfig getConfig() {
+		SlackConfig current = config.get();
+		if (current == null) {
+			config.compareAndSet(null, new SlackConfig(runtimeManager.getSettings()));
+			current = config.get();
+		}
+		return current;
+	}
+
+	/**
+	 * Loads a new settings snapshot and swaps it in.  The user cache is
+	 * cleared if any Gitblit setting has changed, as the user store may have
+	 * been reconfigured.
+	 */
+	void reloadConfig() {
+		try {
+			SlackConfig next = new SlackConfig(runtimeManager.getSettings());
+			SlackConfig previous = config.getAndSet(next);
+			UserCache cache = userCache;
+			if (cache != null && previous != null && previous.settingsHash != next.settingsHash) {
+				log.debug("Gitblit settings changed, clearing the Slack user cache");
+				cache.clear();
+			}
+		} catch (Exception e) {
+			log.error("Failed to reload the Slack settings", e);
+		}
+	}
+
+	/**
+	 * Returns true if the manager has been started and not stopped since.
+	 *
+	 * @return true if the manager is started
+	 */
+	boolean isStarted() {
+		return destinations != null;
+	}
+
+	/**
+	 * Returns the destinations, or an empty list if the manager is stopped.
+	 *
+	 * @return the destinations
+	 */
+	List<Destination> getDestinations() {
+		List<Destination> list = destinations;
+		if (list == null) {
+			return Collections.emptyList();
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the destinations which accept messages about the repository
+	 * and event type.
+	 *
+	 * @param repository the repository, may be null
+	 * @param type
+	 * @return the matching destinations
+	 */
+	List<Destination> route(RepositoryModel repository, EventType type) {
+		if (repository == null) {
+			return route(null, null, type);
+		}
+		return route(repository.name, repository.projectPath, type);
+	}
+
+	/**
+	 * Returns the destinations which accept messages about the repository and
+	 * event type.
+	 *
+	 * @param repository the repository name, may be null
+	 * @param project the project path of the repository, may be null
+	 * @param type
+	 * @return the destinations
+	 */
+	List<Destination> route(String repository, String project, EventType type) {
+		List<Destination> list = getDestinations();
+		if (list.size() == 1) {
+			return list.get(0).accepts(repository, project, type) ? list : Collections.<Destination>emptyList();
+		}
+		List<Destination> targets = new ArrayList<Destination>(list.size());
+		for (Destination destination : list) {
+			if (destination.accepts(repository, project, type)) {
+				targets.add(destination);
+			}
+		}
+		return targets;
+	}
+
+	/**
+	 * Processes a hook event on the event stage so that the caller does not
+	 * wait for message formatting.  If the stage is full the event is
+	 * processed on the calling thread.  The event is dropped if the manager
+	 * is stopped.
+	 *
+	 * @param event
+	 */
+	void execute(Runnable event) {
+		ThreadPoolExecutor executor = eventExecutor;
+		if (executor == null) {
+			log.debug("Slack plugin is stopped, dropping event");
+			return;
+		}
+		try {
+			executor.execute(event);
+		} catch (RejectedExecutionException e) {
+			log.warn("Slack event stage is full, processing event on the calling thread");
+			event.run();
+		}
+	}
+
+	/**
+	 * Runs a background task on the event stage.  Unlike execute, the task is
+	 * not run on the calling thread if the stage is full.
+	 *
+	 * @param task
+	 * @return true if the task was accepted, false if the stage is full or
+	 *         the manager is stopped
+	 */
+	boolean tryExecute(Runnable task) {
+		ThreadPoolExecutor executor = eventExecutor;
+		if (executor == null) {
+			return false;
+		}
+		try {
+			executor.execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the user cache.
+	 *
+	 * @return the user cache or null if the manager is stopped
+	 */
+	UserCache getUserCache() {
+		return userCache;
+	}
+
+	/**
+	 * Returns the display name and gravatar url of a user.  If the manager is
+	 * stopped the username is returned as the display name, the message will
+	 * not be sent anyway.
+	 *
+	 * @param username
+	 * @return the user
+	 */
+	CachedUser getUser(String username) {
+		UserCache cache = userCache;
+		if (cache == null) {
+			return new CachedUser(username, username, null);
+		}
+		return cache.get(username);
+	}
+
+	/**
+	 * Returns the display name and gravatar url of a live user model.
+	 *
+	 * @param user
+	 * @return the user
+	 */
+	CachedUser getUser(UserModel user) {
+		UserCache cache = userCache;
+		if (cache == null) {
+			return new CachedUser(user.username, user.getDisplayName(), user.emailAddress);
+		}
+		return cache.get(user);
+	}
+
+	/**
+	 * Returns the cache of commit ranges and commit summaries.
+	 *
+	 * @return the commit cache
+	 */
+	CommitCache getCommitCache() {
+		return commitCache;
+	}
+
+	/**
+	 * Returns the plugin metrics.
+	 *
+	 * @return the metrics
+	 */
+	public SlackMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns the push coalescer, if push coalescing is enabled and the
+	 * manager is started.
+	 *
+	 * @return the push coalescer or null
+	 */
+	PushCoalescer getPushCoalescer() {
+		return pushCoalescer;
+	}
+
+	/**
+	 * Returns the splitter which owns the size limits of a payload.
+	 *
+	 * @return the payload splitter
+	 */
+	PayloadSplitter getPayloadSplitter() {
+		PayloadSplitter splitter = payloadSplitter;
+		if (splitter == null) {
+			// stopped
+			splitter = new PayloadSplitter(PayloadSplitter.DEFAULT_MAX_SIZE, PayloadSplitter.DEFAULT_MAX_PARTS);
+		}
+		return splitter;
+	}
+
+	/**
+	 * Returns the digest engine, if any channel receives digests and the
+	 * manager is started.
+	 *
+	 * @return the digest engine or null
+	 */
+	DigestEngine getDigestEngine() {
+		return digestEngine;
+	}
+
+	/**
+	 * Schedules a task on the plugin's scheduler thread.
+	 *
+	 * @param task
+	 * @param delay
+	 * @param unit
+	 * @return true if the task was scheduled
+	 */
+	boolean schedule(Runnable task, long delay, TimeUnit unit) {
+		ScheduledExecutorService timer = scheduler;
+		if (timer == null) {
+			return false;
+		}
+		try {
+			timer.schedule(task, delay, unit);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number of messages waiting in memory to be sent.
+	 *
+	 * @return the queue depth
+	 */
+	public int getQueueDepth() {
+		List<Destination> list = destinations;
+		int depth = 0;
+		if (list != null) {
+			for (Destination destination : list) {
+				depth += destination.getQueueDepth();
+			}
+		}
+		return depth;
+	}
+
+	/**
+	 * Returns the number of messages in the outbox which have not been
+	 * acknowledged by Slack.
+	 *
+	 * @return the number of unsent messages
+	 */
+	public int getOutboxPending() {
+		List<Destination> list = destinations;
+		int pending = 0;
+		if (list != null) {
+			for (Destination destination : list) {
+				pending += destination.getOutboxPending();
+			}
+		}
+		return pending;
+	}
+
+	/**
+	 * Moves unacknowledged messages from the outbox into the dispatch queue
+	 * while there is room in the queue.
+	 */
+	void drain() {
+		List<Destination> list = destinations;
+		if (list == null) {
+			return;
+		}
+		for (Destination destination : list) {
+			try {
+				destination.drain();
+			} catch (RuntimeException e) {
+				log.error("Failed to drain the outbox of " + destination, e);
+			}
+		}
+	}
+
+	/**
+	 * Sends a queued delivery.  Failed deliveries are rescheduled according to
+	 * the retry policy for the class of failure.  The delivery is acknowledged
+	 * in the outbox when Slack accepts it or when it is finally dropped.
+	 *
+	 * @param delivery
+	 */
+	void deliver(Delivery delivery) {
+		if (!admit(delivery)) {
+			return;
+		}
+		if (!delivery.destination.breaker.allowRequest()) {
+			// the webhook is down, fail fast without spending an attempt
+			defer(delivery, delivery.destination.breaker.getRemainingOpenTime());
+			return;
+		}
+		EventMetrics eventMetrics = metrics.get(delivery.type);
+		delivery.attempts++;
+		eventMetrics.attempts.incrementAndGet();
+		try {
+			send(delivery.destination, delivery.payload, delivery.type);
+			eventMetrics.sent.incrementAndGet();
+			eventMetrics.recordLatency(delivery.enqueued);
+			ack(delivery);
+		} catch (IOException e) {
+			retry(delivery, e);
+		} catch (RuntimeException e) {
+			log.error("Unexpected error while sending to Slack!", e);
+			drop(delivery, new IOException(e));
+		}
+	}
+
+	/**
+	 * Admits a delivery to the webhook according to the rate limit of its
+	 * channel.  A delivery which must wait is parked on the scheduler until
+	 * its reserved slot, so the worker moves on to other channels.
+	 *
+	 * @param delivery
+	 * @return true if the delivery may be sent now
+	 */
+	boolean admit(final Delivery delivery) {
+		RateLimiter limiter = delivery.destination.rateLimiter;
+		if (delivery.admitted || limiter == null) {
+			return true;
+		}
+		prepare(delivery.payload);
+		long wait = limiter.reserve(delivery.payload.getChannel(), MAX_RATE_LIMIT_WAIT);
+		if (wait == 0) {
+			delivery.admitted = true;
+			return true;
+		} else if (wait < 0) {
+			// the channel lane is full, leave the message in the outbox
+			release(delivery);
+			return false;
+		}
+
+		delivery.admitted = true;
+		ScheduledExecutorService timer = scheduler;
+		try {
+			timer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					requeue(delivery);
+				}
+			}, wait, TimeUnit.MILLISECONDS);
+		} catch (RuntimeException e) {
+			// shutting down, the outbox will recover it
+			release(delivery);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a parked delivery to the dispatch queue.  This runs on the
+	 * scheduler thread and must not wait for room in a full lane; the
+	 * delivery is released instead and drained from the outbox later.
+	 *
+	 * @param delivery
+	 */
+	void requeue(Delivery delivery) {
+		DispatchQueue queue = delivery.destination.queue;
+		if (queue == null || !queue.tryOffer(delivery)) {
+			release(delivery);
+		}
+	}
+
+	/**
+	 * Sets aside a delivery while the circuit of its destination is open.
+	 * Durable deliveries return to the outbox, which is drained again once
+	 * the circuit allows a probe.  Other deliveries are parked on the
+	 * scheduler.
+	 *
+	 * @param delivery
+	 * @param delay the msecs until the circuit allows a probe
+	 */
+	void defer(final Delivery delivery, long delay) {
+		ScheduledExecutorService timer = scheduler;
+		if (delivery.segment >= 0 || timer == null) {
+			release(delivery);
+			return;
+		}
+		try {
+			timer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					requeue(delivery);
+				}
+			}, Math.max(1, delay), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			release(delivery);
+		}
+	}
+
+	/**
+	 * Schedules another attempt for a failed delivery, or drops it if the
+	 * retry policy is exhausted.  The worker thread does not wait.
+	 *
+	 * @param delivery
+	 * @param e
+	 */
+	void retry(final Delivery delivery, IOException e) {
+		ErrorClass errorClass = ErrorClass.of(e);
+		RetryPolicy policy = retryPolicies.get(errorClass);
+		ScheduledExecutorService timer = scheduler;
+		if (policy == null || timer == null || !policy.shallRetry(delivery.attempts)) {
+			log.error(String.format("Failed to send asynchronously to %s after %d attempts!",
+					delivery.destination, delivery.attempts), e);
+			drop(delivery, e);
+			return;
+		}
+
+		long retryAfter = e instanceof SlackException ? ((SlackException) e).getRetryAfter() : 0;
+		long delay = policy.getDelay(delivery.attempts, retryAfter);
+		log.warn("Failed to send to {} ({}), attempt {} of {}, retrying in {} msecs: {}",
+				delivery.destination, errorClass, delivery.attempts, policy.maxAttempts, delay, e.getMessage());
+		metrics.get(delivery.type).retries.incrementAndGet();
+		// the next attempt needs a new send slot
+		delivery.admitted = false;
+		try {
+			timer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					requeue(delivery);
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException x) {
+			// shutting down, the outbox will recover it
+			release(delivery);
+		}
+	}
+
+	void ack(Delivery delivery) {
+		Outbox box = delivery.destination.outbox;
+		if (box != null) {
+			box.ack(delivery);
+		}
+		if (delivery.future != null) {
+			delivery.future.done(null);
+		}
+	}
+
+	/**
+	 * Discards a delivery which was pushed out of a full dispatch queue.
+	 *
+	 * @param delivery
+	 */
+	void drop(Delivery delivery) {
+		drop(delivery, new IOException("Message was dropped because the dispatch queue was full"));
+	}
+
+	/**
+	 * Discards a delivery which will never be sent.
+	 *
+	 * @param delivery
+	 * @param cause
+	 */
+	void drop(Delivery delivery, IOException cause) {
+		metrics.get(delivery.type).drops.incrementAndGet();
+		Outbox box = delivery.destination.outbox;
+		if (box != null) {
+			box.ack(delivery);
+		}
+		if (delivery.future != null) {
+			delivery.future.done(cause);
+		}
+	}
+
+	/**
+	 * Returns a delivery to the outbox to be drained again later.
+	 *
+	 * @param delivery
+	 */
+	void release(Delivery delivery) {
+		Outbox box = delivery.destination.outbox;
+		if (box != null) {
+			box.release(delivery);
+		}
+		if (delivery.segment < 0 && delivery.future != null) {
+			// not in the outbox, so it will not be drained again
+			delivery.future.done(new IOException("Message could not be queued"));
+		}
+	}
+
 	/**
 	 * Returns true if the repository can be posted to Slack.
 	 *
@@ -96,15 +758,29 @@ public class Slacker implements IManager {
 	 * @return true if the repository can be posted to Slack
 	 */
 	public boolean shallPost(RepositoryModel repository) {
-		boolean postPersonalRepos = runtimeManager.getSettings().getBoolean(Plugin.SETTING_POST_PERSONAL_REPOS, false);
-		if (repository.isPersonalRepository() && !postPersonalRepos) {
+		return shallPost(getConfig(), repository);
+	}
+
+	/**
+	 * Returns true if the repository can be posted to Slack.
+	 *
+	 * @param config
+	 * @param repository
+	 * @return true if the repository can be posted to Slack
+	 */
+	public boolean shallPost(SlackConfig config, RepositoryModel repository) {
+		if (repository.isPersonalRepository() && !config.postPersonalRepos) {
 			return false;
 		}
 		return true;
 	}
 
 	public String getURL() throws IOException {
-		String url = runtimeManager.getSettings().getString(Plugin.SETTING_URL, null);
+		return getURL(getConfig());
+	}
+
+	private String getURL(SlackConfig config) throws IOException {
+		String url = config.url;
 		if (StringUtils.isEmpty(url)) {
 			throw new IOException(String.format("Could not send message to Slack because '%s' is not defined!", Plugin.SETTING_URL));
 		}
@@ -118,20 +794,49 @@ public class Slacker implements IManager {
 	 * @param payload
 	 */
 	public void setChannel(RepositoryModel repository, Payload payload) {
-		boolean useProjectChannels = runtimeManager.getSettings().getBoolean(Plugin.SETTING_USE_PROJECT_CHANNELS, false);
-		if (!useProjectChannels) {
-			return;
+		setChannel(getConfig(), repository, payload);
+	}
+
+	/**
+	 * Optionally sets the channel of the payload based on the repository.
+	 *
+	 * @param config
+	 * @param repository
+	 * @param payload
+	 */
+	public void setChannel(SlackConfig config, RepositoryModel repository, Payload payload) {
+		String channel = getProjectChannel(config, repository);
+		if (channel != null) {
+			payload.setChannel(channel);
 		}
+	}
 
-		if (StringUtils.isEmpty(repository.projectPath)) {
-			return;
+	/**
+	 * Returns the channel which receives messages about the repository.
+	 *
+	 * @param config
+	 * @param repository the repository, may be null
+	 * @return the project channel, the default channel, or null for the
+	 *         default channel of the webhook
+	 */
+	public String getChannel(SlackConfig config, RepositoryModel repository) {
+		String channel = getProjectChannel(config, repository);
+		return channel != null ? channel : config.defaultChannelName;
+	}
+
+	private String getProjectChannel(SlackConfig config, RepositoryModel repository) {
+		if (!config.useProjectChannels) {
+			return null;
 		}
 
-		String defaultChannel = runtimeManager.getSettings().getString(Plugin.SETTING_DEFAULT_CHANNEL, null);
-		if (!StringUtils.isEmpty(defaultChannel)) {
-			payload.setChannel(defaultChannel + "-" + repository.projectPath);
+		if (repository == null || StringUtils.isEmpty(repository.projectPath)) {
+			return null;
+		}
+
+		if (!StringUtils.isEmpty(config.defaultChannel)) {
+			return config.defaultChannel + "-" + repository.projectPath;
 		} else {
-			payload.setChannel(repository.projectPath);
+			return repository.projectPath;
 		}
 	}
 
@@ -146,13 +851,145 @@ public class Slacker implements IManager {
 	}
 
 	/**
-	 * Asynchronously send a payload message.
+	 * Asynchronously send a payload message to the destinations which accept
+	 * user posts.
 	 *
 	 * @param payload
-	 * @throws IOException
 	 */
-	public void sendAsync(final Payload payload) {
-		taskPool.submit(new SlackerTask(this, payload));
+	public void sendAsync(Payload payload) {
+		sendAsync(payload, null, EventType.POST);
+	}
+
+	/**
+	 * Asynchronously send a payload message to the destinations which accept
+	 * messages about the repository and event type.  A hook message which is
+	 * identical to one sent within the dedup window, if set, is suppressed.
+	 *
+	 * @param payload
+	 * @param repository the repository, may be null
+	 * @param type
+	 */
+	public void sendAsync(Payload payload, RepositoryModel repository, EventType type) {
+		dispatch(payload, repository, type, false);
+	}
+
+	/**
+	 * Asynchronously send a payload message to the destinations which accept
+	 * user posts.
+	 *
+	 * @param payload
+	 * @return a future which completes when every destination has accepted
+	 *         or dropped the message
+	 */
+	public SendFuture submit(Payload payload) {
+		return submit(payload, null, EventType.POST);
+	}
+
+	/**
+	 * Asynchronously send a payload message to the destinations which accept
+	 * messages about the repository and event type.
+	 *
+	 * @param payload
+	 * @param repository the repository, may be null
+	 * @param type
+	 * @return a future which completes when every destination has accepted
+	 *         or dropped the message
+	 */
+	public SendFuture submit(Payload payload, RepositoryModel repository, EventType type) {
+		return dispatch(payload, repository, type, true);
+	}
+
+	/**
+	 * Asynchronously send a payload message to destinations which were
+	 * already routed.
+	 *
+	 * @param payload
+	 * @param targets the destinations, from route
+	 * @param type
+	 */
+	void sendTo(Payload payload, List<Destination> targets, EventType type) {
+		dispatch(payload, targets, type, false);
+	}
+
+	private SendFuture dispatch(Payload payload, RepositoryModel repository, EventType type, boolean track) {
+		if (!isStarted()) {
+			log.debug("Slack plugin is stopped, dropping {} message", type);
+			return track ? SendFuture.failed(new IOException("Could not send message because the Slack plugin is stopped!")) : null;
+		}
+		List<Destination> targets = route(repository, type);
+		if (targets.isEmpty()) {
+			log.debug("No destination accepts {} messages for {}", type,
+					repository == null ? "the server" : repository.name);
+		}
+		return dispatch(payload, targets, type, track);
+	}
+
+	private SendFuture dispatch(Payload payload, List<Destination> targets, EventType type, boolean track) {
+		if (targets.isEmpty()) {
+			return track ? SendFuture.failed(new IOException("Could not send message because no destination accepts it!")) : null;
+		}
+		// a destination without a url fails here instead of being retried
+		SlackConfig config = getConfig();
+		List<Destination> sendable = new ArrayList<Destination>(targets.size());
+		SlackException unsendable = null;
+		for (Destination destination : targets) {
+			try {
+				destination.getUrl(config);
+				sendable.add(destination);
+			} catch (SlackException e) {
+				log.error(e.getMessage());
+				unsendable = e;
+			}
+		}
+		if (sendable.isEmpty()) {
+			return track ? SendFuture.failed(unsendable) : null;
+		}
+		targets = sendable;
+		Deduplicator dedup = deduplicator;
+		if (dedup != null && EventType.POST != type && dedup.isDuplicate(payload)) {
+			// users may post the same text twice on purpose, hooks should not
+			metrics.get(type).suppressed.incrementAndGet();
+			log.debug("Suppressed duplicate {} message", type);
+			return track ? SendFuture.completed() : null;
+		}
+		// oversized messages are split before they reach an outbox
+		PayloadSplitter splitter = payloadSplitter;
+		List<Payload> parts = splitter == null ? Collections.singletonList(payload) : splitter.split(payload);
+		if (parts.size() > 1) {
+			log.debug("Split oversized {} message into {} parts", type, parts.size());
+		}
+		SendFuture future = track ? new SendFuture(targets.size() * parts.size()) : null;
+		for (Payload part : parts) {
+			// every destination stamps and sends its own copy of the payload
+			String json = targets.size() > 1 ? PayloadEntity.GSON.toJson(part) : null;
+			for (int i = 0; i < targets.size(); i++) {
+				Payload copy = i == 0 ? part : PayloadEntity.GSON.fromJson(json, Payload.class);
+				enqueue(targets.get(i), copy, type, future);
+			}
+		}
+		return future;
+	}
+
+	private void enqueue(Destination destination, Payload payload, EventType type, SendFuture future) {
+		Delivery delivery = null;
+		Outbox box = destination.outbox;
+		if (box != null) {
+			try {
+				delivery = box.append(payload, type, future);
+			} catch (IOException e) {
+				log.error("Failed to write message to the outbox of " + destination, e);
+			}
+		}
+		if (delivery == null) {
+			// not durable, but still worth sending
+			delivery = new Delivery(destination, payload, type, future, -1, -1);
+		}
+		metrics.get(type).enqueued.incrementAndGet();
+		metrics.queueDepth.record(destination.getQueueDepth());
+		DispatchQueue queue = destination.queue;
+		if (queue == null || !queue.offer(delivery)) {
+			release(delivery);
+		}
 	}
 
 	/**
@@ -166,110 +1003,187 @@ public class Slacker implements IManager {
 	}
 
 	/**
-	 * Send a payload message.
+	 * Stamps the payload with the default username, channel and emoji.
 	 *
 	 * @param payload
-	 * @throws IOException
 	 */
-	public void send(Payload payload) throws IOException {
-		String slackUrl = getURL();
+	void prepare(Payload payload) {
+		prepare(getConfig(), payload);
+	}
 
+	private void prepare(SlackConfig config, Payload payload) {
 		payload.setUnfurlLinks(true);
 		if (StringUtils.isEmpty(payload.getUsername())) {
 			payload.setUsername(Constants.NAME);
 		}
 
-		String defaultChannel = runtimeManager.getSettings().getString(Plugin.SETTING_DEFAULT_CHANNEL, null);
-		if (!StringUtils.isEmpty(defaultChannel) && StringUtils.isEmpty(payload.getChannel())) {
+		if (config.defaultChannelName != null && StringUtils.isEmpty(payload.getChannel())) {
 			// specify the default channel
-			if (defaultChannel.charAt(0) != '#' && defaultChannel.charAt(0) != '@') {
-				defaultChannel = "#" + defaultChannel;
-			}
-			// channels must be lowercase
-			payload.setChannel(defaultChannel.toLowerCase());
+			payload.setChannel(config.defaultChannelName);
 		}
 
-		String defaultEmoji = runtimeManager.getSettings().getString(Plugin.SETTING_DEFAULT_EMOJI, null);
-		if (!StringUtils.isEmpty(defaultEmoji)) {
+		if (!StringUtils.isEmpty(config.defaultEmoji)) {
 			if (StringUtils.isEmpty(payload.getIconEmoji()) && StringUtils.isEmpty(payload.getIconUrl())) {
 				// specify the default emoji
-				payload.setIconEmoji(defaultEmoji);
+				payload.setIconEmoji(config.defaultEmoji);
 			}
 		}
+	}
+
+	/**
+	 * Send a payload message to the destinations which accept user posts and
+	 * wait for it to be accepted.  The message takes the same path as an
+	 * asynchronous message, including retries.
+	 *
+	 * @param payload
+	 * @throws IOException if the message failed or was not sent in time
+	 */
+	public void send(Payload payload) throws IOException {
+		send(payload, SEND_TIMEOUT, TimeUnit.MILLISECONDS);
+	}
 
-		Gson gson = new GsonBuilder().create();
-		String json = gson.toJson(payload);
-		log.debug(json);
+	/**
+	 * Send a payload message to the destinations which accept user posts and
+	 * wait up to the timeout for it to be accepted.  The message is not
+	 * queued while the circuit of a destination is open.
+	 *
+	 * @param payload
+	 * @param timeout
+	 * @param unit
+	 * @throws IOException if a circuit is open, or the message failed or was
+	 *         not sent in time
+	 */
+	public void send(Payload payload, long timeout, TimeUnit unit) throws IOException {
+		for (Destination destination : route(null, EventType.POST)) {
+			CircuitBreaker breaker = destination.breaker;
+			if (breaker.isOpen()) {
+				throw new IOException(String.format("Could not send message because the circuit for %s is open for %d more seconds!",
+						destination, TimeUnit.MILLISECONDS.toSeconds(breaker.getRemainingOpenTime())));
+			}
+		}
+		submit(payload).await(timeout, unit);
+	}
+
+	/**
+	 * Send a payload message to a destination.
+	 *
+	 * @param destination
+	 * @param payload
+	 * @param type the event type
+	 * @throws IOException
+	 */
+	void send(Destination destination, Payload payload, EventType type) throws IOException {
+		CircuitBreaker breaker = destination.breaker;
+		try {
+			post(destination, payload, metrics.get(type));
+		} catch (IOException e) {
+			if (e instanceof SlackException && !((SlackException) e).isSent()) {
+				// the webhook was not contacted
+				breaker.onAbort();
+			} else {
+				breaker.onFailure(e);
+			}
+			throw e;
+		} catch (RuntimeException e) {
+			breaker.onAbort();
+			throw e;
+		}
+		breaker.onSuccess();
+	}
 
-		HttpClient client = new DefaultHttpClient();
-		HttpPost post = new HttpPost(slackUrl);
-		post.getParams().setParameter(CoreProtocolPNames.USER_AGENT,
-				Constants.NAME + "/" + Constants.getVersion());
-		post.getParams().setParameter(CoreProtocolPNames.HTTP_CONTENT_CHARSET, "UTF-8");
+	private void post(Destination destination, Payload payload, EventMetrics eventMetrics) throws IOException {
+		SlackConfig config = getConfig();
+		String url = destination.getUrl(config);
+		CloseableHttpClient client = destination.httpClient;
+		if (client == null) {
+			throw new IOException(String.format("Could not send message to %s because it is stopped!", destination));
+		}
 
-		client.getParams().setParameter(AllClientPNames.CONNECTION_TIMEOUT, 5000);
-		client.getParams().setParameter(AllClientPNames.SO_TIMEOUT, 5000);
+		prepare(config, payload);
 
-		List<NameValuePair> nvps = new ArrayList<NameValuePair>(1);
-		nvps.add(new BasicNameValuePair("payload",json));
+		if (log.isDebugEnabled()) {
+			log.debug(PayloadEntity.GSON.toJson(payload));
+		}
 
-		post.setEntity(new UrlEncodedFormEntity(nvps, "UTF-8"));
+		PayloadEntity entity = new PayloadEntity(payload, destination.isPostJson(config));
+		HttpPost post = new HttpPost(url);
+		post.setEntity(entity);
 
-		HttpResponse response = client.execute(post);
+		long start = System.nanoTime();
+		CloseableHttpResponse response;
+		try {
+			response = client.execute(post);
+		} catch (IOException e) {
+			metrics.networkErrors.incrementAndGet();
+			throw e;
+		}
+		try {
+			int rc = response.getStatusLine().getStatusCode();
+			metrics.recordStatus(rc);
 
-		int rc = response.getStatusLine().getStatusCode();
+			if (HttpStatus.SC_OK == rc) {
+				// fully consume the response so the connection is returned to the pool
+				EntityUtils.consume(response.getEntity());
+				eventMetrics.recordRoundTrip(start, entity.getContentLength());
+			} else {
+				String result = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity(), "UTF-8");
+				eventMetrics.recordRoundTrip(start, entity.getContentLength());
+				long retryAfter = getRetryAfter(response);
 
-		if (HttpStatus.SC_OK == rc) {
-			// replace this with post.closeConnection() after JGit updates to HttpClient 4.2
-			post.abort();
-		} else {
-			String result = null;
-			InputStream is = response.getEntity().getContent();
-			try {
-				byte [] buffer = new byte[8192];
-				ByteArrayOutputStream os = new ByteArrayOutputStream();
-				int len = 0;
-				while ((len = is.read(buffer)) > -1) {
-					os.write(buffer, 0, len);
+				if (log.isDebugEnabled()) {
+					log.debug("Slack plugin sent to {}:", destination);
+					log.debug(PayloadEntity.GSON.toJson(payload));
 				}
-				result = os.toString("UTF-8");
-			} finally {
-				if (is != null) {
-					is.close();
-				}
-			}
+				log.debug("{} returned:", destination);
+				log.debug(result);
 
-			log.error("Slack plugin sent:");
-			log.error(json);
-			log.error("Slack returned:");
-			log.error(result);
+				throw new SlackException(rc, result, retryAfter);
+			}
+		} finally {
+			response.close();
+		}
+	}
 
-			throw new IOException(String.format("Slack Error (%s): %s", rc, result));
+	/**
+	 * Returns the delay requested by a Retry-After header, which may be
+	 * specified in seconds or as an HTTP date.
+	 *
+	 * @param response
+	 * @return the delay in msecs, or 0
+	 */
+	static long getRetryAfter(HttpResponse response) {
+		Header header = response.getFirstHeader("Retry-After");
+		if (header == null || StringUtils.isEmpty(header.getValue())) {
+			return 0;
 		}
+		String value = header.getValue().trim();
+		try {
+			return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+		} catch (NumberFormatException e) {
+			Date date = DateUtils.parseDate(value);
+			if (date != null) {
+				return Math.max(0, date.getTime() - System.currentTimeMillis());
+			}
+		}
+		return 0;
 	}
 
-	private static class SlackerTask implements Serializable, Callable<Boolean> {
+	private static class DaemonThreadFactory implements ThreadFactory {
 
-		private static final long serialVersionUID = 1L;
+		final String name;
 
-		final Logger log = LoggerFactory.getLogger(getClass());
-		final Slacker slacker;
-		final Payload payload;
+		final AtomicInteger count;
 
-		public SlackerTask(Slacker slacker, Payload payload) {
-			this.slacker = slacker;
-			this.payload = payload;
+		DaemonThreadFactory(String name) {
+			this.name = name;
+			this.count = new AtomicInteger();
 		}
 
 		@Override
-		public Boolean call() throws Exception {
-			try {
-				slacker.send(payload);
-				return true;
-			} catch (IOException e) {
-				log.error("Failed to send asynchronously to Slack!", e);
-			}
-			return false;
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
 		}
 	}
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.HashMap;
+
+import com.gitblit.models.TicketModel;
+import com.gitblit.models.TicketModel.Change;
+
+/**
+ * A private copy of a ticket and one of its changes, taken on the ticket
+ * service thread so that the event may be formatted later on the event stage
+ * without racing further changes to the ticket.
+ *
+ * Only the fields which the ticket hook formats are copied: the identity,
+ * title, status and merge target of the ticket, the patchsets, and the
+ * author, comment, field changes, patchset and review of the change.
+ */
+class TicketEvent {
+
+	final TicketModel ticket;
+
+	final Change change;
+
+	private TicketEvent(TicketModel ticket, Change change) {
+		this.ticket = ticket;
+		this.change = change;
+	}
+
+	/**
+	 * Copies the ticket and the change.  The copied change takes the place of
+	 * the change in the copied ticket's change list, so the first change of a
+	 * new ticket is still the change of the event.
+	 *
+	 * @param ticket
+	 * @param change
+	 * @return a snapshot of the event
+	 */
+	static TicketEvent of(TicketModel ticket, Change change) {
+		Change changeCopy = copy(change);
+		changeCopy.comment = change.comment;
+		if (change.fields != null) {
+			changeCopy.fields = new HashMap<TicketModel.Field, String>(change.fields);
+		}
+		changeCopy.review = change.review;
+
+		TicketModel ticketCopy = new TicketModel();
+		ticketCopy.project = ticket.project;
+		ticketCopy.repository = ticket.repository;
+		ticketCopy.number = ticket.number;
+		ticketCopy.title = ticket.title;
+		ticketCopy.status = ticket.status;
+		ticketCopy.mergeTo = ticket.mergeTo;
+		boolean found = false;
+		for (Change c : ticket.changes) {
+			if (c == change) {
+				ticketCopy.changes.add(changeCopy);
+				found = true;
+			} else if (c.patchset != null) {
+				// previous patchsets are the base of a patchset update
+				ticketCopy.changes.add(copy(c));
+			}
+		}
+		if (!found) {
+			ticketCopy.changes.add(changeCopy);
+		}
+		return new TicketEvent(ticketCopy, changeCopy);
+	}
+
+	/**
+	 * Copies the author, date and patchset of a change.  A patchset is not
+	 * modified once it has been added to a ticket.
+	 */
+	private static Change copy(Change change) {
+		Change copy = new Change(change.author, change.date);
+		copy.patchset = change.patchset;
+		return copy;
+	}
+}
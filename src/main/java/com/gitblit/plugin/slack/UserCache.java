@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gitblit.manager.IUserManager;
+import com.gitblit.models.UserModel;
+import com.gitblit.servlet.GitblitContext;
+import com.gitblit.utils.ActivityUtils;
+import com.gitblit.utils.StringUtils;
+
+/**
+ * A size-bounded, time-expiring cache of user display names and gravatar urls.
+ *
+ * Expired entries are still served while they are reloaded on the event
+ * stage so that formatting a message only waits on the user store the first
+ * time a user is seen.  An entry is replaced whenever a live user model with a
+ * different display name or email address is seen, and the whole cache is
+ * cleared when the Gitblit settings are reloaded with changes.
+ */
+class UserCache {
+
+	final Logger log = LoggerFactory.getLogger(getClass());
+
+	final Slacker slacker;
+
+	final long ttl;
+
+	final Map<String, CachedUser> cache;
+
+	final AtomicLong hits;
+
+	final AtomicLong misses;
+
+	UserCache(Slacker slacker, final int maxSize, long ttl) {
+		this.slacker = slacker;
+		this.ttl = ttl;
+		this.cache = new LinkedHashMap<String, CachedUser>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+				return size() > maxSize;
+			}
+		};
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+	}
+
+	/**
+	 * Returns the cached user, loading it from the user store on a miss.  An
+	 * unknown user is cached with the username as the display name.
+	 *
+	 * @param username
+	 * @return the cached user
+	 */
+	CachedUser get(final String username) {
+		CachedUser user;
+		synchronized (cache) {
+			user = cache.get(username);
+		}
+
+		if (user == null) {
+			misses.incrementAndGet();
+			user = load(username);
+		} else {
+			hits.incrementAndGet();
+			if (user.isExpired(ttl) && user.claimRefresh()) {
+				// the user store may be a slow directory, keep it off the scheduler thread
+				boolean accepted = slacker.tryExecute(new Runnable() {
+					@Override
+					public void run() {
+						load(username);
+					}
+				});
+				if (!accepted) {
+					user = load(username);
+				}
+			}
+		}
+		return user;
+	}
+
+	/**
+	 * Returns the cached user for a live user model.  The cached entry is
+	 * replaced if the user model has changed.
+	 *
+	 * @param model
+	 * @return the cached user
+	 */
+	CachedUser get(UserModel model) {
+		CachedUser user;
+		synchronized (cache) {
+			user = cache.get(model.username);
+		}
+
+		if (user != null && user.matches(model) && !user.isExpired(ttl)) {
+			hits.incrementAndGet();
+			return user;
+		}
+
+		misses.incrementAndGet();
+		user = new CachedUser(model.username, model.getDisplayName(), model.emailAddress);
+		put(user);
+		return user;
+	}
+
+	/**
+	 * Removes all users from the cache.
+	 */
+	void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	private CachedUser load(String username) {
+		CachedUser user;
+		try {
+			IUserManager userManager = GitblitContext.getManager(IUserManager.class);
+			UserModel model = userManager.getUserModel(username);
+			if (model == null) {
+				user = new CachedUser(username, username, null);
+			} else {
+				user = new CachedUser(username, model.getDisplayName(), model.emailAddress);
+			}
+		} catch (Exception e) {
+			log.error("Failed to load user " + username, e);
+			user = new CachedUser(username, username, null);
+		}
+		put(user);
+		return user;
+	}
+
+	private void put(CachedUser user) {
+		synchronized (cache) {
+			cache.put(user.username, user);
+		}
+	}
+
+	static class CachedUser {
+
+		final String username;
+
+		final String displayName;
+
+		final String emailAddress;
+
+		final String gravatarUrl;
+
+		final long loaded;
+
+		private boolean refreshing;
+
+		CachedUser(String username, String displayName, String emailAddress) {
+			this.username = username;
+			this.displayName = StringUtils.isEmpty(displayName) ? username : displayName;
+			this.emailAddress = emailAddress;
+			this.gravatarUrl = StringUtils.isEmpty(emailAddress) ? null : ActivityUtils.getGravatarThumbnailUrl(emailAddress, 36);
+			this.loaded = System.currentTimeMillis();
+		}
+
+		boolean isExpired(long ttl) {
+			return System.currentTimeMillis() - loaded > ttl;
+		}
+
+		synchronized boolean claimRefresh() {
+			if (refreshing) {
+				return false;
+			}
+			refreshing = true;
+			return true;
+		}
+
+		boolean matches(UserModel model) {
+			return equal(displayName, StringUtils.isEmpty(model.getDisplayName()) ? model.username : model.getDisplayName())
+					&& equal(emailAddress, model.emailAddress);
+		}
+
+		private static boolean equal(String a, String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+}
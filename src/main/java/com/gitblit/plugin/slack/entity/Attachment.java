@@ -60,6 +60,14 @@ public class Attachment {
 		return this;
 	}
 
+	public Attachment mrkdwnIn(String...names) {
+		if (mrkdwn_in == null) {
+			mrkdwn_in = new TreeSet<String>();
+		}
+		mrkdwn_in.addAll(Arrays.asList(names));
+		return this;
+	}
+
 	public Attachment fields(Field...fields) {
 		if (this.fields == null)
 			setFields(new ArrayList<Field>(Arrays.asList(fields)));
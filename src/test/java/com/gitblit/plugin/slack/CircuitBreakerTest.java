@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.junit.Test;
+
+import com.gitblit.MemorySettings;
+import com.gitblit.plugin.slack.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+	@Test
+	public void opensAfterConsecutiveFailures() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 3, 60000, 60000);
+		breaker.onFailure(new SocketTimeoutException());
+		breaker.onFailure(new SlackException(503, "unavailable"));
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+
+		breaker.onFailure(new IOException("reset"));
+		assertEquals(State.OPEN, breaker.getState());
+		assertTrue(breaker.isOpen());
+		assertFalse(breaker.allowRequest());
+		assertEquals(1, breaker.getTrips());
+		assertEquals(1, breaker.getRejected());
+		assertTrue(breaker.getRemainingOpenTime() > 59000);
+	}
+
+	@Test
+	public void aResponseResetsTheFailures() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 3, 60000, 60000);
+		breaker.onFailure(new SocketTimeoutException());
+		breaker.onFailure(new SocketTimeoutException());
+		breaker.onSuccess();
+		breaker.onFailure(new SocketTimeoutException());
+		breaker.onFailure(new SocketTimeoutException());
+		assertEquals(State.CLOSED, breaker.getState());
+		assertEquals(2, breaker.getFailures());
+	}
+
+	@Test
+	public void rejectedPayloadsDoNotCount() {
+		CircuitBreaker breaker = new CircuitBreaker("test", 2, 60000, 60000);
+		breaker.onFailure(new SocketTimeoutException());
+		// the webhook is up, the payload or rate was at fault
+		breaker.onFailure(new SlackException(400, "invalid_payload"));
+		breaker.onFailure(new SlackException(429, "rate_limited", 1000));
+		breaker.onFailure(new SocketTimeoutException());
+		assertEquals(State.CLOSED, breaker.getState());
+		assertEquals(1, breaker.getFailures());
+	}
+
+	@Test
+	public void allowsASingleProbeWhenHalfOpen() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker("test", 1, 50, 1000);
+		breaker.onFailure(new SocketTimeoutException());
+		assertFalse(breaker.allowRequest());
+
+		Thread.sleep(80);
+		assertFalse(breaker.isOpen());
+		assertTrue(breaker.allowRequest());
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest());
+
+		breaker.onSuccess();
+		assertEquals(State.CLOSED, breaker.getState());
+		assertEquals(0, breaker.getRemainingOpenTime());
+		assertTrue(breaker.allowRequest());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void reopensForTwiceAsLongWhenTheProbeFails() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker("test", 1, 50, 120);
+		breaker.onFailure(new SocketTimeoutException());
+		Thread.sleep(80);
+		assertTrue(breaker.allowRequest());
+
+		breaker.onFailure(new SocketTimeoutException());
+		assertEquals(State.OPEN, breaker.getState());
+		long remaining = breaker.getRemainingOpenTime();
+		assertTrue(remaining > 50 && remaining <= 100);
+
+		// and is capped at the maximum
+		Thread.sleep(130);
+		assertTrue(breaker.allowRequest());
+		breaker.onFailure(new SocketTimeoutException());
+		remaining = breaker.getRemainingOpenTime();
+		assertTrue(remaining > 100 && remaining <= 120);
+		assertEquals(3, breaker.getTrips());
+	}
+
+	@Test
+	public void anAbortedProbeLetsTheNextOneThrough() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker("test", 1, 50, 1000);
+		breaker.onFailure(new SocketTimeoutException());
+		Thread.sleep(80);
+		assertTrue(breaker.allowRequest());
+		assertFalse(breaker.allowRequest());
+
+		breaker.onAbort();
+		assertEquals(State.HALF_OPEN, breaker.getState());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void aThresholdOfZeroNeverOpens() {
+		MemorySettings settings = new MemorySettings();
+		settings.put(Plugin.SETTING_CIRCUIT_FAILURE_THRESHOLD, 0);
+		CircuitBreaker breaker = CircuitBreaker.of(settings, "test");
+		for (int i = 0; i < 100; i++) {
+			breaker.onFailure(new SocketTimeoutException());
+		}
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+	}
+}
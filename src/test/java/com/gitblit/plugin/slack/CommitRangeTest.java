@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommitRangeTest {
+
+	Repository repository;
+
+	RevWalk walk;
+
+	ObjectId [] ids;
+
+	@Before
+	public void setup() throws IOException {
+		repository = TestCommits.newRepository();
+		// commits 2 to 21 are in the range
+		ids = TestCommits.commit(repository, 21);
+		walk = new RevWalk(repository);
+	}
+
+	@After
+	public void teardown() {
+		walk.close();
+		repository.close();
+	}
+
+	@Test
+	public void listsTheOldestCommitsFirst() throws IOException {
+		CommitRange range = CommitRange.walk(walk, ids[0], ids[20], 5, true, null, 0);
+		assertEquals(20, range.total);
+		assertFalse(range.capped);
+		assertEquals(5, range.commits.size());
+		assertEquals(ids[1].getName(), range.commits.get(0).id);
+		assertEquals("Commit 2", range.commits.get(0).shortMessage);
+		assertEquals(ids[5].getName(), range.commits.get(4).id);
+		assertEquals("20 commits", range.getCountText());
+	}
+
+	@Test
+	public void listsTheNewestCommitsFirst() throws IOException {
+		CommitRange range = CommitRange.walk(walk, ids[0], ids[20], 5, false, null, 0);
+		assertEquals(20, range.total);
+		assertEquals(ids[20].getName(), range.commits.get(0).id);
+		assertEquals(ids[16].getName(), range.commits.get(4).id);
+	}
+
+	@Test
+	public void stopsAtTheLimit() throws IOException {
+		CommitRange range = CommitRange.walk(walk, ids[0], ids[20], 5, true, null, 10);
+		assertEquals(10, range.total);
+		assertTrue(range.capped);
+		assertEquals("10+ commits", range.getCountText());
+		// a capped range lists its newest commits
+		assertEquals(5, range.commits.size());
+		assertEquals(ids[20].getName(), range.commits.get(0).id);
+		assertEquals(ids[16].getName(), range.commits.get(4).id);
+	}
+
+	@Test
+	public void isNotCappedAtTheExactLimit() throws IOException {
+		CommitRange range = CommitRange.walk(walk, ids[0], ids[20], 5, true, null, 20);
+		assertEquals(20, range.total);
+		assertFalse(range.capped);
+		assertEquals(ids[1].getName(), range.commits.get(0).id);
+	}
+
+	@Test
+	public void countsASingleCommit() throws IOException {
+		CommitRange range = CommitRange.walk(walk, ids[19], ids[20], 5, true, null, 0);
+		assertEquals(1, range.total);
+		assertEquals(1, range.commits.size());
+		assertEquals("1 commit", range.getCountText());
+	}
+
+	@Test
+	public void reusesCachedSummaries() throws IOException {
+		CommitCache.Summaries cache = new CommitCache.Summaries(10, 100);
+		CommitRange first = CommitRange.walk(walk, ids[0], ids[20], 5, true, cache, 0);
+		CommitRange second = CommitRange.walk(walk, ids[0], ids[20], 5, true, cache, 0);
+		for (int i = 0; i < 5; i++) {
+			assertSame(first.commits.get(i), second.commits.get(i));
+		}
+	}
+}
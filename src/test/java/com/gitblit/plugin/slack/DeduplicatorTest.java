@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.gitblit.plugin.slack.entity.Attachment;
+import com.gitblit.plugin.slack.entity.Payload;
+
+public class DeduplicatorTest {
+
+	@Test
+	public void suppressesARepeatWithinTheWindow() {
+		Deduplicator dedup = new Deduplicator(64, 60000);
+		long hash = Deduplicator.hash(new Payload("pushed 1 commit").channel("#dev"));
+		assertFalse(dedup.isDuplicate(hash, 1000));
+		assertTrue(dedup.isDuplicate(hash, 1000));
+		assertTrue(dedup.isDuplicate(hash, 60999));
+	}
+
+	@Test
+	public void expiresAfterTheWindow() {
+		Deduplicator dedup = new Deduplicator(64, 60000);
+		long hash = Deduplicator.hash(new Payload("pushed 1 commit"));
+		assertFalse(dedup.isDuplicate(hash, 1000));
+		assertFalse(dedup.isDuplicate(hash, 61000));
+		// the expired message was recorded again
+		assertTrue(dedup.isDuplicate(hash, 62000));
+	}
+
+	@Test
+	public void aDuplicateDoesNotExtendTheWindow() {
+		Deduplicator dedup = new Deduplicator(64, 60000);
+		long hash = Deduplicator.hash(new Payload("pushed 1 commit"));
+		assertFalse(dedup.isDuplicate(hash, 1000));
+		assertTrue(dedup.isDuplicate(hash, 50000));
+		assertFalse(dedup.isDuplicate(hash, 61000));
+	}
+
+	@Test
+	public void evictsTheOldestWhenFull() {
+		Deduplicator dedup = new Deduplicator(8, 60000);
+		for (long hash = 1; hash <= 9; hash++) {
+			assertFalse(dedup.isDuplicate(hash, 1000 + hash));
+		}
+		// the oldest was overwritten, the rest are remembered
+		assertFalse(dedup.isDuplicate(1, 2000));
+		for (long hash = 3; hash <= 9; hash++) {
+			assertTrue(dedup.isDuplicate(hash, 2000));
+		}
+	}
+
+	@Test
+	public void hashesChannelTextAndAttachments() {
+		long hash = Deduplicator.hash(new Payload("deployed").channel("#dev"));
+		assertEquals(hash, Deduplicator.hash(new Payload("deployed").channel("#dev").username("gitblit")));
+		assertTrue(hash != Deduplicator.hash(new Payload("deployed").channel("#ops")));
+		assertTrue(hash != Deduplicator.hash(new Payload("deployed")));
+		assertTrue(hash != Deduplicator.hash(new Payload("deployed").channel("#dev")
+				.attachments(new Attachment("v1.0"))));
+		// the fields are separated
+		assertTrue(Deduplicator.hash(new Payload("c").channel("ab"))
+				!= Deduplicator.hash(new Payload("bc").channel("a")));
+	}
+}
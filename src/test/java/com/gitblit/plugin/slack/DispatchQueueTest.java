@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.gitblit.MemorySettings;
+import com.gitblit.plugin.slack.DispatchQueue.OverflowPolicy;
+import com.gitblit.plugin.slack.entity.Payload;
+
+public class DispatchQueueTest {
+
+	@Test
+	public void servesLanesInProportionToTheirWeight() throws InterruptedException {
+		DispatchQueue queue = newQueue(new MemorySettings(), OverflowPolicy.SPILL, 0);
+		for (int i = 0; i < 20; i++) {
+			for (EventType type : new EventType [] { EventType.POST, EventType.TICKET, EventType.PUSH, EventType.TAG }) {
+				assertTrue(queue.offer(delivery(type, i)));
+			}
+		}
+
+		// one round of the default weights 8, 4, 2 and 1
+		Map<EventType, Integer> served = poll(queue, 15);
+		assertEquals(8, (int) served.get(EventType.POST));
+		assertEquals(4, (int) served.get(EventType.TICKET));
+		assertEquals(2, (int) served.get(EventType.PUSH));
+		assertEquals(1, (int) served.get(EventType.TAG));
+	}
+
+	@Test
+	public void servesEveryLaneWithinOneRound() throws InterruptedException {
+		MemorySettings settings = new MemorySettings();
+		settings.put(Plugin.SETTING_LANE_PREFIX + "push.weight", 100);
+		DispatchQueue queue = newQueue(settings, OverflowPolicy.SPILL, 0);
+		for (int i = 0; i < 200; i++) {
+			queue.offer(delivery(EventType.PUSH, i));
+		}
+		queue.offer(delivery(EventType.TAG, 0));
+
+		Map<EventType, Integer> served = poll(queue, 101);
+		assertEquals(1, (int) served.get(EventType.TAG));
+	}
+
+	@Test
+	public void pollsInOrderWithinALane() throws InterruptedException {
+		DispatchQueue queue = newQueue(new MemorySettings(), OverflowPolicy.SPILL, 0);
+		for (int i = 0; i < 3; i++) {
+			queue.offer(delivery(EventType.PUSH, i));
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals(i, queue.poll(0, TimeUnit.MILLISECONDS).index);
+		}
+		assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void tryOfferDoesNotApplyThePolicy() {
+		DispatchQueue queue = newQueue(capacity(1), OverflowPolicy.DROP_OLDEST, 0);
+		assertTrue(queue.tryOffer(delivery(EventType.PUSH, 0)));
+		assertFalse(queue.tryOffer(delivery(EventType.PUSH, 1)));
+		assertEquals(0, queue.getDropped());
+		assertEquals(1, queue.getDepth(EventType.PUSH));
+	}
+
+	@Test
+	public void spillLeavesTheDeliveryInTheOutbox() {
+		DispatchQueue queue = newQueue(capacity(2), OverflowPolicy.SPILL, 5000);
+		assertTrue(queue.offer(delivery(EventType.PUSH, 0)));
+		assertTrue(queue.offer(delivery(EventType.PUSH, 1)));
+
+		long start = System.nanoTime();
+		assertFalse(queue.offer(delivery(EventType.PUSH, 2)));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+		assertEquals(2, queue.getDepth());
+		assertEquals(0, queue.getDropped());
+
+		// other lanes are unaffected
+		assertTrue(queue.offer(delivery(EventType.TICKET, 0)));
+	}
+
+	@Test
+	public void spillBlocksADeliveryWhichIsNotInTheOutbox() {
+		DispatchQueue queue = newQueue(capacity(1), OverflowPolicy.SPILL, 100);
+		assertTrue(queue.offer(delivery(EventType.PUSH, 0)));
+
+		long start = System.nanoTime();
+		assertFalse(queue.offer(new Delivery(null, new Payload("unsaved"), EventType.PUSH, null, -1, -1)));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+	}
+
+	@Test
+	public void dropOldestMakesRoom() throws InterruptedException {
+		RecordingSlacker slacker = new RecordingSlacker();
+		DispatchQueue queue = new DispatchQueue(slacker, "test", capacity(2), 1, OverflowPolicy.DROP_OLDEST, 0);
+		Delivery oldest = delivery(EventType.PUSH, 0);
+		queue.offer(oldest);
+		queue.offer(delivery(EventType.PUSH, 1));
+		assertTrue(queue.offer(delivery(EventType.PUSH, 2)));
+
+		assertEquals(1, queue.getDropped());
+		assertEquals(1, slacker.dropped.size());
+		assertSame(oldest, slacker.dropped.get(0));
+		assertEquals(1, queue.poll(0, TimeUnit.MILLISECONDS).index);
+		assertEquals(2, queue.poll(0, TimeUnit.MILLISECONDS).index);
+	}
+
+	@Test
+	public void blockWaitsForRoom() throws InterruptedException {
+		final DispatchQueue queue = newQueue(capacity(1), OverflowPolicy.BLOCK, 5000);
+		queue.offer(delivery(EventType.PUSH, 0));
+
+		Thread consumer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+					queue.poll(0, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					// done
+				}
+			}
+		};
+		consumer.start();
+		assertTrue(queue.offer(delivery(EventType.PUSH, 1)));
+		consumer.join();
+		assertEquals(1, queue.poll(0, TimeUnit.MILLISECONDS).index);
+	}
+
+	@Test
+	public void blockGivesUpAfterTheTimeout() {
+		DispatchQueue queue = newQueue(capacity(1), OverflowPolicy.BLOCK, 100);
+		queue.offer(delivery(EventType.PUSH, 0));
+		assertFalse(queue.offer(delivery(EventType.PUSH, 1)));
+		assertEquals(1, queue.getDepth());
+	}
+
+	@Test
+	public void parsesPolicyNames() {
+		assertEquals(OverflowPolicy.DROP_OLDEST, OverflowPolicy.fromName("dropOldest"));
+		assertEquals(OverflowPolicy.BLOCK, OverflowPolicy.fromName("block"));
+		assertEquals(OverflowPolicy.SPILL, OverflowPolicy.fromName("unknown"));
+	}
+
+	private static DispatchQueue newQueue(MemorySettings settings, OverflowPolicy policy, long blockTimeout) {
+		return new DispatchQueue(new RecordingSlacker(), "test", settings, 1, policy, blockTimeout);
+	}
+
+	private static MemorySettings capacity(int capacity) {
+		MemorySettings settings = new MemorySettings();
+		settings.put(Plugin.SETTING_QUEUE_CAPACITY, capacity);
+		return settings;
+	}
+
+	private static Delivery delivery(EventType type, int index) {
+		return new Delivery(null, new Payload(type + " " + index), type, null, 1, index);
+	}
+
+	private static Map<EventType, Integer> poll(DispatchQueue queue, int count) throws InterruptedException {
+		Map<EventType, Integer> served = new EnumMap<EventType, Integer>(EventType.class);
+		for (EventType type : EventType.values()) {
+			served.put(type, 0);
+		}
+		for (int i = 0; i < count; i++) {
+			Delivery delivery = queue.poll(0, TimeUnit.MILLISECONDS);
+			served.put(delivery.type, served.get(delivery.type) + 1);
+		}
+		return served;
+	}
+
+	/**
+	 * Records the deliveries the queue drops.
+	 */
+	static class RecordingSlacker extends Slacker {
+
+		final List<Delivery> dropped = new ArrayList<Delivery>();
+
+		RecordingSlacker() {
+			super(null);
+		}
+
+		@Override
+		void drop(Delivery delivery) {
+			dropped.add(delivery);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.pegdown.Extensions.ALL;
+import static org.pegdown.Extensions.SMARTYPANTS;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pegdown.PegDownProcessor;
+import org.pegdown.ast.RootNode;
+
+import com.gitblit.MemorySettings;
+
+/**
+ * Measures the Slack markup of a ticket comment, with and without the
+ * PegDown parse and the ticket and commit linking.
+ *
+ * @author James Moger
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MarkdownBenchmark {
+
+	static final String COMMENT = "Looks good, but a few things before #42 can be merged:\n\n"
+			+ "1. the **outbox** must be _fsynced_ after each record\n"
+			+ "2. see [the docs](http://gitblit.com/setup_plugins.html) and 1a2b3c4d5e6f\n"
+			+ "3. `Slacker.send()` should not block\n\n"
+			+ "> Is the lane weight configurable?\n"
+			+ "> Yes, with *slack.lane.PUSH.weight*\n\n"
+			+ "    for (Delivery delivery : pending) {\n"
+			+ "        slacker.release(delivery);\n"
+			+ "    }\n\n"
+			+ "- [x] tests\n"
+			+ "- [ ] docs\n";
+
+	SlackConfig config;
+
+	SlackTicketHook hook;
+
+	RootNode root;
+
+	@Setup
+	public void setup() {
+		config = new SlackConfig(new MemorySettings());
+		hook = new SlackTicketHook(new Slacker(null));
+		root = new PegDownProcessor(ALL & ~SMARTYPANTS).parseMarkdown(COMMENT.toCharArray());
+	}
+
+	@Benchmark
+	public String serialize() {
+		return new SlackMarkupSerializer().toHtml(root);
+	}
+
+	@Benchmark
+	public String renderMarkdown() {
+		return hook.renderMarkdown(config, COMMENT, "team/slack.git");
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.gitblit.plugin.slack.entity.Payload;
+
+public class OutboxTest {
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	File folder;
+
+	@Before
+	public void setup() {
+		folder = new File(temp.getRoot(), "outbox");
+	}
+
+	@Test
+	public void recoversUnacknowledgedRecords() throws IOException {
+		Outbox outbox = open();
+		Delivery first = outbox.append(new Payload("first"), EventType.PUSH, null);
+		outbox.append(new Payload("second"), EventType.TICKET, null);
+		outbox.append(new Payload("third"), EventType.POST, null);
+		outbox.ack(first);
+		outbox.close();
+
+		Outbox recovered = new Outbox(folder, null);
+		assertEquals(2, recovered.open());
+		List<Delivery> list = recovered.drain(room(10));
+		assertEquals(2, list.size());
+		assertEquals("second", list.get(0).payload.getText());
+		assertEquals(EventType.TICKET, list.get(0).type);
+		assertEquals("third", list.get(1).payload.getText());
+		assertEquals(EventType.POST, list.get(1).type);
+		recovered.close();
+	}
+
+	@Test
+	public void drainsUpToTheRoomOfEachLane() throws IOException {
+		Outbox outbox = open();
+		outbox.append(new Payload("push 1"), EventType.PUSH, null);
+		outbox.append(new Payload("push 2"), EventType.PUSH, null);
+		outbox.append(new Payload("ticket"), EventType.TICKET, null);
+		outbox.close();
+
+		outbox = new Outbox(folder, null);
+		outbox.open();
+		int [] room = room(0);
+		room[EventType.PUSH.ordinal()] = 1;
+		room[EventType.TICKET.ordinal()] = 1;
+		List<Delivery> list = outbox.drain(room);
+		assertEquals(2, list.size());
+		assertEquals("push 1", list.get(0).payload.getText());
+		assertEquals("ticket", list.get(1).payload.getText());
+
+		// in flight records are not drained twice
+		assertEquals(1, outbox.drain(room(10)).size());
+		outbox.close();
+	}
+
+	@Test
+	public void truncatesATornRecord() throws IOException {
+		Outbox outbox = open();
+		outbox.append(new Payload("first"), EventType.PUSH, null);
+		outbox.append(new Payload("second"), EventType.PUSH, null);
+		outbox.close();
+
+		File [] logs = logs();
+		assertEquals(1, logs.length);
+		long length = logs[0].length();
+		try (FileOutputStream os = new FileOutputStream(logs[0], true)) {
+			os.write("PUSH\t{\"text\":\"tor".getBytes("UTF-8"));
+		}
+
+		Outbox recovered = new Outbox(folder, null);
+		assertEquals(2, recovered.open());
+		assertEquals(length, logs[0].length());
+		List<Delivery> list = recovered.drain(room(10));
+		assertEquals(2, list.size());
+		assertEquals("second", list.get(1).payload.getText());
+		recovered.close();
+	}
+
+	@Test
+	public void deletesAcknowledgedSegmentsOnOpen() throws IOException {
+		Outbox outbox = open();
+		outbox.ack(outbox.append(new Payload("first"), EventType.PUSH, null));
+		outbox.ack(outbox.append(new Payload("second"), EventType.PUSH, null));
+
+		// the active segment is kept until the outbox rolls or reopens
+		assertEquals(1, logs().length);
+		outbox.close();
+
+		Outbox recovered = new Outbox(folder, null);
+		assertEquals(0, recovered.open());
+		assertEquals(0, logs().length);
+		recovered.close();
+	}
+
+	@Test
+	public void deletesARecoveredSegmentOnceAcknowledged() throws IOException {
+		Outbox outbox = open();
+		outbox.ack(outbox.append(new Payload("first"), EventType.PUSH, null));
+		outbox.append(new Payload("second"), EventType.PUSH, null);
+		outbox.close();
+
+		Outbox recovered = new Outbox(folder, null);
+		assertEquals(1, recovered.open());
+		List<Delivery> list = recovered.drain(room(10));
+		assertEquals(1, list.size());
+		recovered.ack(list.get(0));
+		assertEquals(0, recovered.getPending());
+		assertEquals(0, logs().length);
+		recovered.close();
+	}
+
+	@Test
+	public void deletesARolledSegmentOnceAcknowledged() throws IOException {
+		char [] text = new char[1024 * 1024];
+		Arrays.fill(text, 'x');
+
+		Outbox outbox = open();
+		Delivery large = outbox.append(new Payload(new String(text)), EventType.PUSH, null);
+		Delivery next = outbox.append(new Payload("next"), EventType.PUSH, null);
+		assertTrue(large.segment != next.segment);
+		assertEquals(2, logs().length);
+
+		outbox.ack(large);
+		assertEquals(1, logs().length);
+		assertEquals(1, outbox.getPending());
+		outbox.close();
+	}
+
+	private Outbox open() throws IOException {
+		Outbox outbox = new Outbox(folder, null);
+		assertEquals(0, outbox.open());
+		return outbox;
+	}
+
+	private File [] logs() {
+		File [] files = folder.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".log");
+			}
+		});
+		return files == null ? new File[0] : files;
+	}
+
+	private static int [] room(int room) {
+		int [] lanes = new int[EventType.values().length];
+		Arrays.fill(lanes, room);
+		return lanes;
+	}
+}
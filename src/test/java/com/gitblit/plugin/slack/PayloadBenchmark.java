@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.gitblit.plugin.slack.entity.Attachment;
+import com.gitblit.plugin.slack.entity.Field;
+import com.gitblit.plugin.slack.entity.Payload;
+
+/**
+ * Measures the JSON and form encoding of a ticket payload.
+ *
+ * @author James Moger
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class PayloadBenchmark {
+
+	Payload payload;
+
+	@Setup
+	public void setup() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			text.append("<https://localhost:8443/commit?r=team/slack.git&h=1a2b3c|`1a2b3c`> ")
+				.append("Fix the \"outbox\" compaction & recovery of torn records\n");
+		}
+		Attachment attachment = Attachment.instance("ticket #42")
+				.color("#a0a0a0")
+				.text(text.toString())
+				.mrkdwnIn("text", "fields")
+				.fields(new Field("Status", "open", true),
+						new Field("Responsible", "James Moger", true),
+						new Field("Milestone", "1.4.0", true),
+						new Field("Topic", "Ünïcödé and emoji 🚀", false));
+		payload = Payload.instance("*james* has updated <https://localhost:8443/tickets?r=team/slack.git&h=42|ticket-42>")
+				.channel("#dev")
+				.username("James Moger")
+				.icon(":ticket:")
+				.attachments(attachment);
+	}
+
+	@Benchmark
+	public String toJson() {
+		return PayloadEntity.GSON.toJson(payload);
+	}
+
+	@Benchmark
+	public PayloadEntity jsonEntity() throws IOException {
+		return new PayloadEntity(payload, true);
+	}
+
+	@Benchmark
+	public PayloadEntity formEntity() throws IOException {
+		return new PayloadEntity(payload, false);
+	}
+}
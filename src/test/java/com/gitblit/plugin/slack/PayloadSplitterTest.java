@@ -0,0 +1,192 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.gitblit.plugin.slack.entity.Attachment;
+import com.gitblit.plugin.slack.entity.Payload;
+import com.google.gson.JsonPrimitive;
+
+public class PayloadSplitterTest {
+
+	@Test
+	public void keepsASmallPayload() {
+		Payload payload = new Payload("hello").channel("#dev");
+		List<Payload> parts = new PayloadSplitter(16000, 5).split(payload);
+		assertEquals(1, parts.size());
+		assertSame(payload, parts.get(0));
+	}
+
+	@Test
+	public void measuresLikeGson() {
+		String text = "a \"quoted\" <b> & c\né€😀\u0001";
+		assertEquals(PayloadSplitter.measure(new JsonPrimitive(text)), PayloadSplitter.cost(text));
+		assertEquals(PayloadSplitter.measure(new Payload(text)),
+				PayloadSplitter.measure(PayloadEntity.GSON.toJsonTree(new Payload(text))));
+	}
+
+	@Test
+	public void splitsAtParagraphs() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			sb.append("Paragraph ").append(i).append(" has a few words in it.\n\n");
+		}
+		List<String> chunks = PayloadSplitter.splitText(sb.toString(), 200);
+		assertTrue(chunks.size() > 1);
+		for (String chunk : chunks) {
+			assertTrue(PayloadSplitter.cost(chunk) <= 200);
+			assertTrue(chunk, chunk.startsWith("Paragraph "));
+			assertTrue(chunk, chunk.trim().endsWith("in it."));
+		}
+	}
+
+	@Test
+	public void closesAndReopensASplitFence() {
+		StringBuilder sb = new StringBuilder("Build log:\n```\n");
+		for (int i = 0; i < 100; i++) {
+			sb.append("[INFO] step ").append(i).append('\n');
+		}
+		sb.append("```\nDone.");
+		List<String> chunks = PayloadSplitter.splitText(sb.toString(), 300);
+		assertTrue(chunks.size() > 2);
+		for (int i = 0; i < chunks.size(); i++) {
+			String chunk = chunks.get(i);
+			assertTrue(PayloadSplitter.cost(chunk) <= 300);
+			assertEquals(chunk, 0, fences(chunk) % 2);
+			if (i > 0) {
+				assertTrue(chunk, chunk.startsWith("```\n"));
+			}
+		}
+		assertTrue(chunks.get(chunks.size() - 1).endsWith("```\nDone."));
+	}
+
+	@Test
+	public void doesNotSplitALink() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 30; i++) {
+			sb.append("<https://gitblit.com/commit/").append(i).append("|the text of link ").append(i).append("> ");
+		}
+		List<String> chunks = PayloadSplitter.splitText(sb.toString(), 300);
+		assertTrue(chunks.size() > 1);
+		for (String chunk : chunks) {
+			assertTrue(PayloadSplitter.cost(chunk) <= 300);
+			assertTrue(chunk, chunk.trim().startsWith("<"));
+			assertTrue(chunk, chunk.trim().endsWith(">"));
+		}
+	}
+
+	@Test
+	public void cutsBeforeALinkWithoutSpaces() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 30; i++) {
+			sb.append("<https://gitblit.com/commit/").append(i).append('>');
+		}
+		List<String> chunks = PayloadSplitter.splitText(sb.toString(), 300);
+		assertTrue(chunks.size() > 1);
+		StringBuilder joined = new StringBuilder();
+		for (String chunk : chunks) {
+			assertTrue(chunk, chunk.startsWith("<"));
+			assertTrue(chunk, chunk.endsWith(">"));
+			joined.append(chunk);
+		}
+		assertEquals(sb.toString(), joined.toString());
+	}
+
+	@Test
+	public void doesNotSplitASurrogatePair() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append("😀");
+		}
+		// an odd budget, so a naive cut would land between the halves of a pair
+		List<String> chunks = PayloadSplitter.splitText(sb.toString(), 100);
+		assertTrue(chunks.size() > 1);
+		StringBuilder joined = new StringBuilder();
+		for (String chunk : chunks) {
+			assertTrue(PayloadSplitter.cost(chunk) <= 100);
+			assertTrue(Character.isHighSurrogate(chunk.charAt(0)));
+			assertTrue(Character.isLowSurrogate(chunk.charAt(chunk.length() - 1)));
+			joined.append(chunk);
+		}
+		assertEquals(sb.toString(), joined.toString());
+	}
+
+	@Test
+	public void splitsALargeMessage() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append("- line ").append(i).append(" of a long & \"detailed\" message\n");
+		}
+		Payload payload = new Payload(sb.toString()).channel("#dev").username("gitblit");
+		List<Payload> parts = new PayloadSplitter(16000, 10).split(payload);
+		assertTrue(parts.size() > 1);
+		for (Payload part : parts) {
+			assertTrue(PayloadSplitter.measure(part) <= 16000);
+			assertEquals("#dev", part.getChannel());
+			assertEquals("gitblit", part.getUsername());
+			assertFalse(part.getText().endsWith("_(message truncated)_"));
+		}
+	}
+
+	@Test
+	public void truncatesAtTheMaximumParts() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("line ").append(i).append('\n');
+		}
+		List<Payload> parts = new PayloadSplitter(1000, 3).split(new Payload(sb.toString()));
+		assertEquals(3, parts.size());
+		assertTrue(parts.get(2).getText().endsWith("\n_(message truncated)_"));
+		for (Payload part : parts) {
+			assertTrue(PayloadSplitter.measure(part) <= 1000);
+		}
+	}
+
+	@Test
+	public void splitsTooManyAttachments() {
+		Payload payload = new Payload("attachments");
+		for (int i = 0; i < 250; i++) {
+			payload.addAttachment(new Attachment("attachment " + i).text("text " + i));
+		}
+		List<Payload> parts = new PayloadSplitter(64000, 5).split(payload);
+		assertEquals(3, parts.size());
+		int count = 0;
+		for (Payload part : parts) {
+			assertTrue(part.getAttachments().size() <= PayloadSplitter.MAX_ATTACHMENTS);
+			count += part.getAttachments().size();
+		}
+		assertEquals(250, count);
+		assertEquals("attachment 0", parts.get(0).getAttachments().get(0).getFallback());
+	}
+
+	private static int fences(String text) {
+		int n = 0;
+		int i = text.indexOf("```");
+		while (i > -1) {
+			n++;
+			i = text.indexOf("```", i + 3);
+		}
+		return n;
+	}
+}
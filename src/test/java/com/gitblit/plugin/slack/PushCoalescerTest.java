@@ -0,0 +1,204 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.UserModel;
+import com.gitblit.plugin.slack.PushCoalescer.PendingPush;
+
+public class PushCoalescerTest {
+
+	ManualSlacker slacker;
+
+	RecordingHook hook;
+
+	PushCoalescer coalescer;
+
+	RepositoryModel repository;
+
+	UserModel james;
+
+	UserModel alice;
+
+	@Before
+	public void setup() {
+		slacker = new ManualSlacker();
+		hook = new RecordingHook(slacker);
+		coalescer = new PushCoalescer(slacker, 30000);
+		repository = new RepositoryModel();
+		repository.name = "team/slack.git";
+		james = new UserModel("james");
+		alice = new UserModel("alice");
+	}
+
+	@Test
+	public void mergesAContinuousRun() {
+		coalescer.add(push(james, "refs/heads/master", "a", "b", "c1"));
+		coalescer.add(push(james, "refs/heads/master", "b", "c", "c2", "c3"));
+		coalescer.add(push(james, "refs/heads/master", "c", "d", "c4"));
+		assertEquals(0, hook.sent.size());
+
+		slacker.runScheduled();
+		assertEquals(1, hook.sent.size());
+		PendingPush sent = hook.sent.get(0);
+		assertEquals("a", sent.oldId);
+		assertEquals("d", sent.newId);
+		assertEquals(3, sent.pushes);
+		assertEquals(4, sent.commits.total);
+		// newest first
+		assertEquals("c4", sent.commits.commits.get(0).id);
+		assertEquals("c1", sent.commits.commits.get(3).id);
+	}
+
+	@Test
+	public void listsTheNewestCommitsOfALongRun() {
+		coalescer.add(push(james, "refs/heads/master", "a", "b", "c1", "c2", "c3"));
+		coalescer.add(push(james, "refs/heads/master", "b", "c", "c4", "c5", "c6"));
+		slacker.runScheduled();
+
+		CommitRange commits = hook.sent.get(0).commits;
+		assertEquals(6, commits.total);
+		assertEquals(hook.getMaxCommits(), commits.commits.size());
+		assertEquals("c6", commits.commits.get(0).id);
+		assertEquals("c2", commits.commits.get(4).id);
+		assertEquals("6 commits", commits.getCountText());
+	}
+
+	@Test
+	public void sendsThePendingRunOnAGap() {
+		coalescer.add(push(james, "refs/heads/master", "a", "b", "c1"));
+		// not a continuation of b
+		coalescer.add(push(james, "refs/heads/master", "x", "y", "c2"));
+		assertEquals(1, hook.sent.size());
+		assertEquals("b", hook.sent.get(0).newId);
+
+		slacker.runScheduled();
+		assertEquals(2, hook.sent.size());
+		assertEquals("y", hook.sent.get(1).newId);
+	}
+
+	@Test
+	public void doesNotMergeAnotherUser() {
+		coalescer.add(push(james, "refs/heads/master", "a", "b", "c1"));
+		coalescer.add(push(alice, "refs/heads/master", "b", "c", "c2"));
+		assertEquals(1, hook.sent.size());
+		assertEquals("james", hook.sent.get(0).user.username);
+
+		slacker.runScheduled();
+		assertEquals(2, hook.sent.size());
+		assertEquals("alice", hook.sent.get(1).user.username);
+		assertEquals(1, hook.sent.get(1).pushes);
+	}
+
+	@Test
+	public void keepsRefsApart() {
+		coalescer.add(push(james, "refs/heads/master", "a", "b", "c1"));
+		coalescer.add(push(james, "refs/heads/develop", "b", "c", "c2"));
+		assertEquals(0, hook.sent.size());
+
+		slacker.runScheduled();
+		assertEquals(2, hook.sent.size());
+		assertEquals(1, hook.sent.get(0).pushes);
+		assertEquals(1, hook.sent.get(1).pushes);
+	}
+
+	@Test
+	public void flushesARefBeforeAnotherChange() {
+		coalescer.add(push(james, "refs/heads/master", "a", "b", "c1"));
+		coalescer.flush(repository, "refs/heads/master");
+		assertEquals(1, hook.sent.size());
+
+		// the window closing later does not send it again
+		slacker.runScheduled();
+		assertEquals(1, hook.sent.size());
+	}
+
+	@Test
+	public void sendsAtOnceWithoutAScheduler() {
+		slacker.stopped = true;
+		coalescer.add(push(james, "refs/heads/master", "a", "b", "c1"));
+		assertEquals(1, hook.sent.size());
+	}
+
+	private PendingPush push(UserModel user, String refName, String oldId, String newId, String... commits) {
+		List<CommitSummary> list = new ArrayList<CommitSummary>();
+		for (String id : commits) {
+			list.add(new CommitSummary(id, "commit " + id));
+		}
+		// newest first
+		Collections.reverse(list);
+		return new PendingPush(hook, repository, user, refName, oldId, newId,
+				new CommitRange(list, commits.length, false));
+	}
+
+	/**
+	 * Runs scheduled tasks when asked.
+	 */
+	static class ManualSlacker extends Slacker {
+
+		final List<Runnable> scheduled = new ArrayList<Runnable>();
+
+		boolean stopped;
+
+		ManualSlacker() {
+			super(null);
+		}
+
+		@Override
+		boolean schedule(Runnable task, long delay, TimeUnit unit) {
+			if (stopped) {
+				return false;
+			}
+			scheduled.add(task);
+			return true;
+		}
+
+		void runScheduled() {
+			List<Runnable> tasks = new ArrayList<Runnable>(scheduled);
+			scheduled.clear();
+			for (Runnable task : tasks) {
+				task.run();
+			}
+		}
+	}
+
+	/**
+	 * Records the coalesced pushes instead of sending them.
+	 */
+	static class RecordingHook extends SlackReceiveHook {
+
+		final List<PendingPush> sent = new ArrayList<PendingPush>();
+
+		RecordingHook(Slacker slacker) {
+			super(slacker);
+		}
+
+		@Override
+		protected void sendUpdate(PendingPush push) {
+			sent.add(push);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.gitblit.MemorySettings;
+import com.gitblit.plugin.slack.RateLimiter.TokenBucket;
+
+public class RateLimiterTest {
+
+	static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	static final long FOREVER = Long.MAX_VALUE / 2;
+
+	@Test
+	public void allowsABurstThenPacesAtTheRate() {
+		TokenBucket bucket = new TokenBucket(1, 3);
+		long now = bucket.tat.get();
+		assertEquals(0, bucket.reserve(now, FOREVER));
+		assertEquals(0, bucket.reserve(now, FOREVER));
+		assertEquals(0, bucket.reserve(now, FOREVER));
+		assertEquals(SECOND, bucket.reserve(now, FOREVER));
+		assertEquals(2 * SECOND, bucket.reserve(now, FOREVER));
+	}
+
+	@Test
+	public void refusesAWaitLongerThanTheMaximum() {
+		TokenBucket bucket = new TokenBucket(1, 1);
+		long now = bucket.tat.get();
+		assertEquals(0, bucket.reserve(now, 0));
+		long tat = bucket.tat.get();
+
+		assertEquals(-1, bucket.reserve(now, SECOND / 2));
+		// nothing was reserved
+		assertEquals(tat, bucket.tat.get());
+		assertEquals(SECOND, bucket.reserve(now, SECOND));
+	}
+
+	@Test
+	public void refillsOverTime() {
+		TokenBucket bucket = new TokenBucket(2, 2);
+		long now = bucket.tat.get();
+		assertEquals(0, bucket.reserve(now, FOREVER));
+		assertEquals(0, bucket.reserve(now, FOREVER));
+		assertEquals(SECOND / 2, bucket.reserve(now, FOREVER));
+
+		// idle long enough to earn the whole burst back, but no more
+		now += 10 * SECOND;
+		assertEquals(0, bucket.reserve(now, FOREVER));
+		assertEquals(0, bucket.reserve(now, FOREVER));
+		assertEquals(SECOND / 2, bucket.reserve(now, FOREVER));
+	}
+
+	@Test
+	public void limitsEachChannelOnItsOwn() {
+		MemorySettings settings = new MemorySettings();
+		settings.put(Plugin.SETTING_RATE_LIMIT, 1);
+		settings.put(Plugin.SETTING_RATE_LIMIT_BURST, 1);
+		RateLimiter limiter = new RateLimiter(settings);
+
+		assertEquals(0, limiter.reserve("#dev", 10000));
+		assertEquals(0, limiter.reserve("#ops", 10000));
+		assertEquals(0, limiter.reserve(null, 10000));
+		// channel names are not case sensitive
+		long wait = limiter.reserve("#DEV", 10000);
+		assertTrue(wait > 900 && wait <= 1000);
+		assertEquals(-1, limiter.reserve("#dev", 100));
+	}
+
+	@Test
+	public void readsTheRateOfAChannel() {
+		MemorySettings settings = new MemorySettings();
+		settings.put(Plugin.SETTING_RATE_LIMIT, 1);
+		settings.put(Plugin.SETTING_RATE_LIMIT_BURST, 1);
+		settings.put(Plugin.SETTING_RATE_LIMIT + ".releases", 0.2);
+		settings.put(Plugin.SETTING_RATE_LIMIT + ".bots", 0);
+		RateLimiter limiter = new RateLimiter(settings);
+
+		assertEquals(0, limiter.reserve("#releases", 10000));
+		long wait = limiter.reserve("#releases", 10000);
+		assertTrue(wait > 4900 && wait <= 5000);
+
+		// a rate of 0 is unlimited
+		for (int i = 0; i < 100; i++) {
+			assertEquals(0, limiter.reserve("#bots", 0));
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.gitblit.MemorySettings;
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.UserModel;
+import com.gitblit.plugin.slack.SlackReceiveHook.RefType;
+
+/**
+ * Measures the commit walk and the message formatting of a push.  The
+ * plugin is not started, so the formatted message is dropped.
+ *
+ * @author James Moger
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ReceiveHookBenchmark {
+
+	@Param({ "1", "5", "500" })
+	int commits;
+
+	SlackConfig config;
+
+	SlackReceiveHook hook;
+
+	RepositoryModel repo;
+
+	UserModel user;
+
+	Repository repository;
+
+	RevWalk walk;
+
+	ObjectId baseId;
+
+	ObjectId tipId;
+
+	CommitRange range;
+
+	@Setup
+	public void setup() throws IOException {
+		config = new SlackConfig(new MemorySettings());
+		hook = new SlackReceiveHook(new Slacker(null));
+		repo = new RepositoryModel("team/slack.git", "", "james", new Date());
+		user = new UserModel("james");
+		user.displayName = "James Moger";
+
+		// the base commit and the pushed commits
+		repository = TestCommits.newRepository();
+		ObjectId [] ids = TestCommits.commit(repository, commits + 1);
+		baseId = ids[0];
+		tipId = ids[commits];
+		walk = new RevWalk(repository);
+		range = walk();
+	}
+
+	@TearDown
+	public void tearDown() {
+		walk.close();
+		repository.close();
+	}
+
+	@Benchmark
+	public CommitRange walk() throws IOException {
+		return CommitRange.walk(walk, baseId, tipId, hook.getMaxCommits(), false, null, config.commitWalkLimit);
+	}
+
+	@Benchmark
+	public String format() {
+		StringBuilder sb = new StringBuilder();
+		hook.appendCommits(config, sb, repo, baseId.getName(), tipId.getName(), range);
+		return sb.toString();
+	}
+
+	@Benchmark
+	public void sendUpdate() throws IOException {
+		hook.sendUpdate(config, repo, user, "refs/heads/master", RefType.BRANCH, true,
+				baseId.getName(), tipId.getName(), walk(), 1);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Date;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import com.gitblit.MemorySettings;
+import com.gitblit.plugin.slack.RetryPolicy.ErrorClass;
+
+public class RetryPolicyTest {
+
+	@Test
+	public void backsOffExponentiallyWithEqualJitter() {
+		RetryPolicy policy = new RetryPolicy(10, 1000, 300000);
+		for (int attempts = 1; attempts <= 6; attempts++) {
+			long backoff = 1000L << (attempts - 1);
+			for (int i = 0; i < 100; i++) {
+				long delay = policy.getDelay(attempts, 0);
+				assertTrue(delay + " < " + backoff / 2, delay >= backoff / 2);
+				assertTrue(delay + " > " + backoff, delay <= backoff);
+			}
+		}
+	}
+
+	@Test
+	public void capsTheBackoff() {
+		RetryPolicy policy = new RetryPolicy(100, 1000, 5000);
+		for (int i = 0; i < 100; i++) {
+			long delay = policy.getDelay(50, 0);
+			assertTrue(delay >= 2500);
+			assertTrue(delay <= 5000);
+		}
+	}
+
+	@Test
+	public void honorsRetryAfter() {
+		RetryPolicy policy = new RetryPolicy(10, 1000, 300000);
+		for (int i = 0; i < 100; i++) {
+			// Retry-After wins over the backoff of the first attempt
+			long delay = policy.getDelay(1, 30000);
+			assertTrue(delay >= 30000);
+			assertTrue(delay < 31000);
+		}
+	}
+
+	@Test
+	public void limitsTheAttempts() {
+		RetryPolicy policy = new RetryPolicy(3, 1000, 300000);
+		assertTrue(policy.shallRetry(1));
+		assertTrue(policy.shallRetry(2));
+		assertFalse(policy.shallRetry(3));
+	}
+
+	@Test
+	public void readsThePolicyOfAnErrorClass() {
+		MemorySettings settings = new MemorySettings();
+		settings.put("slack.retry.rateLimited.maxAttempts", 4);
+		settings.put("slack.retry.rateLimited.initialDelay", 250);
+		settings.put("slack.retry.rateLimited.maxDelay", 2000);
+
+		RetryPolicy rateLimited = RetryPolicy.of(settings, ErrorClass.RATE_LIMITED);
+		assertEquals(4, rateLimited.maxAttempts);
+		assertEquals(250, rateLimited.initialDelay);
+		assertEquals(2000, rateLimited.maxDelay);
+
+		RetryPolicy network = RetryPolicy.of(settings, ErrorClass.NETWORK);
+		assertEquals(10, network.maxAttempts);
+		assertEquals(1000, network.initialDelay);
+
+		assertFalse(RetryPolicy.of(settings, ErrorClass.REJECTED).shallRetry(1));
+	}
+
+	@Test
+	public void classifiesFailures() {
+		assertEquals(ErrorClass.RATE_LIMITED, ErrorClass.of(new SlackException(429, "rate_limited", 1000)));
+		assertEquals(ErrorClass.SERVER_ERROR, ErrorClass.of(new SlackException(503, "unavailable")));
+		assertEquals(ErrorClass.SERVER_ERROR, ErrorClass.of(new SlackException(408, "timeout")));
+		assertEquals(ErrorClass.REJECTED, ErrorClass.of(new SlackException(400, "invalid_payload")));
+		assertEquals(ErrorClass.REJECTED, ErrorClass.of(new SlackException("no url")));
+		assertEquals(ErrorClass.NETWORK, ErrorClass.of(new SocketTimeoutException()));
+		assertEquals(ErrorClass.NETWORK, ErrorClass.of(new IOException("reset")));
+	}
+
+	@Test
+	public void parsesRetryAfterSeconds() {
+		assertEquals(30000, Slacker.getRetryAfter(response("30")));
+		assertEquals(0, Slacker.getRetryAfter(response(null)));
+		assertEquals(0, Slacker.getRetryAfter(response("soon")));
+	}
+
+	@Test
+	public void parsesRetryAfterDates() {
+		Date date = new Date(System.currentTimeMillis() + 60000);
+		long delay = Slacker.getRetryAfter(response(DateUtils.formatDate(date)));
+		assertTrue(delay > 55000);
+		assertTrue(delay <= 60000);
+
+		Date past = new Date(System.currentTimeMillis() - 60000);
+		assertEquals(0, Slacker.getRetryAfter(response(DateUtils.formatDate(past))));
+	}
+
+	private static HttpResponse response(String retryAfter) {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, "Too Many Requests");
+		if (retryAfter != null) {
+			response.setHeader("Retry-After", retryAfter);
+		}
+		return response;
+	}
+}
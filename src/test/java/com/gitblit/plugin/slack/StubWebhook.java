@@ -0,0 +1,241 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded stand-in for a Slack incoming webhook.
+ *
+ * Each request is answered with a reply picked at random by weight: 200 ok,
+ * 400 invalid_payload, 429 with a Retry-After header, 500, or a stall which
+ * outlasts the socket timeout of the plugin.  Every reply is delayed by the
+ * configured latency.
+ *
+ * @author James Moger
+ *
+ */
+class StubWebhook {
+
+	enum Reply {
+		OK, INVALID_PAYLOAD, RATE_LIMITED, SERVER_ERROR, STALL;
+
+		static Reply fromName(String name) {
+			for (Reply reply : values()) {
+				if (reply.name().replace("_", "").equalsIgnoreCase(name.replace("_", ""))) {
+					return reply;
+				}
+			}
+			throw new IllegalArgumentException("Unknown reply " + name);
+		}
+	}
+
+	final Map<Reply, Integer> weights;
+
+	final Map<Reply, AtomicLong> counts;
+
+	final Random random;
+
+	long latency;
+
+	long stall;
+
+	int retryAfter;
+
+	private HttpServer server;
+
+	private ExecutorService executor;
+
+	StubWebhook() {
+		this.weights = new EnumMap<Reply, Integer>(Reply.class);
+		this.counts = new EnumMap<Reply, AtomicLong>(Reply.class);
+		for (Reply reply : Reply.values()) {
+			counts.put(reply, new AtomicLong());
+		}
+		this.random = new Random(42);
+		this.stall = TimeUnit.SECONDS.toMillis(10);
+		this.retryAfter = 1;
+	}
+
+	/**
+	 * Sets the weight of a reply.  A webhook without weights always replies ok.
+	 *
+	 * @param reply
+	 * @param weight
+	 * @return this webhook
+	 */
+	synchronized StubWebhook reply(Reply reply, int weight) {
+		weights.put(reply, weight);
+		return this;
+	}
+
+	/**
+	 * Delays every reply.
+	 *
+	 * @param msecs
+	 * @return this webhook
+	 */
+	StubWebhook latency(long msecs) {
+		this.latency = msecs;
+		return this;
+	}
+
+	/**
+	 * Sets how long a stalled request is held before it is answered.
+	 *
+	 * @param msecs
+	 * @return this webhook
+	 */
+	StubWebhook stall(long msecs) {
+		this.stall = msecs;
+		return this;
+	}
+
+	/**
+	 * Sets the Retry-After seconds of a rate limited reply.
+	 *
+	 * @param secs
+	 * @return this webhook
+	 */
+	StubWebhook retryAfter(int secs) {
+		this.retryAfter = secs;
+		return this;
+	}
+
+	synchronized StubWebhook start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					respond(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.start();
+		return this;
+	}
+
+	synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+		}
+	}
+
+	String getUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/services/T000/B000/stub";
+	}
+
+	long getCount(Reply reply) {
+		return counts.get(reply).get();
+	}
+
+	long getRequests() {
+		long total = 0;
+		for (AtomicLong count : counts.values()) {
+			total += count.get();
+		}
+		return total;
+	}
+
+	synchronized Reply next() {
+		int total = 0;
+		for (int weight : weights.values()) {
+			total += weight;
+		}
+		if (total <= 0) {
+			return Reply.OK;
+		}
+		int pick = random.nextInt(total);
+		for (Map.Entry<Reply, Integer> entry : weights.entrySet()) {
+			pick -= entry.getValue();
+			if (pick < 0) {
+				return entry.getKey();
+			}
+		}
+		return Reply.OK;
+	}
+
+	private void respond(HttpExchange exchange) throws IOException {
+		InputStream is = exchange.getRequestBody();
+		byte [] buffer = new byte[4096];
+		while (is.read(buffer) != -1) {
+			// the payload is not inspected
+		}
+
+		Reply reply = next();
+		counts.get(reply).incrementAndGet();
+		sleep(reply == Reply.STALL ? stall : latency);
+
+		switch (reply) {
+		case INVALID_PAYLOAD:
+			send(exchange, 400, "invalid_payload");
+			break;
+		case RATE_LIMITED:
+			exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfter));
+			send(exchange, 429, "rate_limited");
+			break;
+		case SERVER_ERROR:
+			send(exchange, 500, "internal_error");
+			break;
+		case OK:
+		case STALL:
+		default:
+			send(exchange, 200, "ok");
+			break;
+		}
+	}
+
+	private void send(HttpExchange exchange, int status, String body) throws IOException {
+		byte [] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(bytes);
+		os.flush();
+	}
+
+	private static void sleep(long msecs) {
+		if (msecs <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(msecs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
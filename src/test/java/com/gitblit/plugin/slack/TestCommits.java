@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+/**
+ * Builds linear histories in memory for the tests and benchmarks.
+ *
+ * @author James Moger
+ *
+ */
+class TestCommits {
+
+	static Repository newRepository() {
+		return new InMemoryRepository(new DfsRepositoryDescription("test"));
+	}
+
+	/**
+	 * Commits a linear history, one minute apart.
+	 *
+	 * @param repository
+	 * @param count the number of commits
+	 * @return the commit ids, oldest first
+	 * @throws IOException
+	 */
+	static ObjectId [] commit(Repository repository, int count) throws IOException {
+		ObjectId [] ids = new ObjectId[count];
+		ObjectInserter inserter = repository.newObjectInserter();
+		try {
+			ObjectId tree = inserter.insert(new TreeFormatter());
+			long time = 1400000000000L;
+			for (int i = 0; i < count; i++) {
+				PersonIdent ident = new PersonIdent("James Moger", "james@gitblit.com", time + i * 60000L, 0);
+				CommitBuilder commit = new CommitBuilder();
+				commit.setTreeId(tree);
+				if (i > 0) {
+					commit.setParentId(ids[i - 1]);
+				}
+				commit.setAuthor(ident);
+				commit.setCommitter(ident);
+				commit.setMessage("Commit " + (i + 1) + "\n\nThe body of commit " + (i + 1) + ".\n");
+				ids[i] = inserter.insert(commit);
+			}
+			inserter.flush();
+		} finally {
+			inserter.close();
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2026 gitblit.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.gitblit.plugin.slack;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+
+import com.gitblit.IStoredSettings;
+import com.gitblit.MemorySettings;
+import com.gitblit.manager.IRuntimeManager;
+import com.gitblit.models.RepositoryModel;
+import com.gitblit.models.TicketModel;
+import com.gitblit.models.TicketModel.Change;
+import com.gitblit.models.TicketModel.Field;
+import com.gitblit.models.TicketModel.Status;
+import com.gitblit.models.UserModel;
+import com.gitblit.plugin.slack.SlackReceiveHook.RefType;
+import com.gitblit.plugin.slack.StubWebhook.Reply;
+
+/**
+ * Replays synthetic pushes and ticket changes through the hooks at a target
+ * rate against a {@link StubWebhook}, then reports the delivered and dropped
+ * messages and the delivery latency percentiles.
+ *
+ * Options are given as name=value arguments:
+ *
+ * <pre>
+ * rate=20          events per second
+ * duration=30      seconds to replay
+ * tickets=25       percent of the events which are ticket changes
+ * commits=5        commits per push
+ * latency=50       msecs before the webhook replies
+ * mix=ok:90,invalid_payload:2,rate_limited:4,server_error:3,stall:1
+ * drain=60         seconds to wait for the outbox to drain
+ * slack.*          any plugin setting, e.g. slack.workerThreads=4
+ * </pre>
+ *
+ * Deduplication and the plugin rate limit are off unless they are given as
+ * options, so every event is sent and throttled only by the webhook.
+ *
+ * <pre>
+ * rate=100 duration=60 slack.workerThreads=8 slack.rateLimit=1
+ * </pre>
+ *
+ * @author James Moger
+ *
+ */
+public class WebhookReplay {
+
+	static final String DEFAULT_MIX = "ok:90,invalid_payload:2,rate_limited:4,server_error:3,stall:1";
+
+	/**
+	 * The pushes cycle through a fixed window of the commit chain.
+	 */
+	static final int PUSH_WINDOW = 64;
+
+	public static void main(String [] args) throws Exception {
+		Map<String, String> options = new HashMap<String, String>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0) {
+				throw new IllegalArgumentException("Expected name=value but got " + arg);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+
+		int rate = Math.max(1, getInt(options, "rate", 20));
+		int duration = Math.max(1, getInt(options, "duration", 30));
+		int ticketShare = getInt(options, "tickets", 25);
+		int commits = Math.max(1, getInt(options, "commits", 5));
+		int drain = getInt(options, "drain", 60);
+
+		StubWebhook webhook = new StubWebhook().latency(getInt(options, "latency", 50));
+		String mix = options.containsKey("mix") ? options.get("mix") : DEFAULT_MIX;
+		for (String entry : mix.split(",")) {
+			String [] kv = entry.split(":");
+			webhook.reply(Reply.fromName(kv[0].trim()), Integer.parseInt(kv[1].trim()));
+		}
+		webhook.start();
+
+		File baseFolder = Files.createTempDirectory("slack-replay").toFile();
+		MemorySettings settings = new MemorySettings();
+		settings.put(Plugin.SETTING_URL, webhook.getUrl());
+		// the pushes cycle, so identical messages are expected
+		settings.put(Plugin.SETTING_DEDUP_WINDOW, 0);
+		// the webhook answers with its own 429s
+		settings.put(Plugin.SETTING_RATE_LIMIT, 0);
+		for (Map.Entry<String, String> option : options.entrySet()) {
+			if (option.getKey().startsWith("slack.")) {
+				settings.put(option.getKey(), option.getValue());
+			}
+		}
+
+		Slacker slacker = new Slacker(newRuntimeManager(settings, baseFolder));
+		slacker.start();
+		try {
+			replay(slacker, rate, duration, ticketShare, commits);
+			awaitDrain(slacker, drain);
+			report(slacker, webhook, baseFolder);
+		} finally {
+			slacker.stop();
+			webhook.stop();
+		}
+	}
+
+	static void replay(Slacker slacker, int rate, int duration, int ticketShare, int commits) throws IOException {
+		SlackConfig config = slacker.getConfig();
+		SlackReceiveHook receiveHook = new SlackReceiveHook(slacker);
+		SlackTicketHook ticketHook = new ReplayTicketHook(slacker);
+
+		RepositoryModel repo = new RepositoryModel("replay/slack.git", "", "admin", new Date());
+		repo.projectPath = "replay";
+		UserModel user = new UserModel("admin");
+		user.displayName = "Administrator";
+
+		Repository repository = TestCommits.newRepository();
+		ObjectId [] ids = TestCommits.commit(repository, PUSH_WINDOW * commits + 1);
+		RevWalk walk = new RevWalk(repository);
+
+		Random random = new Random(42);
+		long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+		long events = (long) rate * duration;
+		long start = System.nanoTime();
+		int pushes = 0;
+		int tickets = 0;
+		try {
+			for (long i = 0; i < events; i++) {
+				long wait = start + i * interval - System.nanoTime();
+				if (wait > 0) {
+					TimeUnit.NANOSECONDS.sleep(wait);
+				}
+
+				if (random.nextInt(100) < ticketShare) {
+					// every fourth ticket event opens a new ticket
+					if (tickets % 4 == 0) {
+						ticketHook.onNewTicket(newTicket(repo, tickets / 4 + 1, user));
+					} else {
+						TicketModel ticket = newTicket(repo, tickets / 4 + 1, user);
+						Change change = new Change(user.username);
+						change.comment("Replayed comment " + tickets + " on **ticket " + ticket.number + "**");
+						ticket.changes.add(change);
+						ticketHook.onUpdateTicket(ticket, change);
+					}
+					tickets++;
+				} else {
+					int base = (pushes % PUSH_WINDOW) * commits;
+					ReceiveCommand cmd = new ReceiveCommand(ids[base], ids[base + commits],
+							"refs/heads/replay-" + (pushes % 8));
+					CommitRange range = CommitRange.walk(walk, cmd.getOldId(), cmd.getNewId(),
+							receiveHook.getMaxCommits(), false, null, config.commitWalkLimit);
+					receiveHook.sendUpdate(config, repo, user, cmd.getRefName(), RefType.BRANCH, true,
+							cmd.getOldId().getName(), cmd.getNewId().getName(), range, 1);
+					pushes++;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			walk.close();
+			repository.close();
+		}
+
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		System.out.println(String.format("replayed %d pushes and %d ticket events in %d msecs",
+				pushes, tickets, elapsed));
+	}
+
+	static TicketModel newTicket(RepositoryModel repo, long number, UserModel user) {
+		TicketModel ticket = new TicketModel();
+		ticket.project = repo.projectPath;
+		ticket.repository = repo.name;
+		ticket.number = number;
+		ticket.title = "Replayed ticket " + number;
+		ticket.status = Status.New;
+
+		Change change = new Change(user.username);
+		change.setField(Field.title, ticket.title);
+		change.setField(Field.status, Status.New);
+		change.comment("The body of replayed ticket " + number);
+		ticket.changes.add(change);
+		return ticket;
+	}
+
+	static void awaitDrain(Slacker slacker, int secs) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(secs);
+		while (System.currentTimeMillis() < deadline
+				&& (slacker.getQueueDepth() > 0 || slacker.getOutboxPending() > 0)) {
+			Thread.sleep(250);
+		}
+	}
+
+	static void report(Slacker slacker, StubWebhook webhook, File baseFolder) {
+		SlackMetrics metrics = slacker.getMetrics();
+		long delivered = 0;
+		long dropped = 0;
+		for (EventMetrics event : metrics.getEvents()) {
+			if (event.getEnqueued() == 0) {
+				continue;
+			}
+			delivered += event.getSent();
+			dropped += event.getDrops();
+			System.out.println(String.format(
+					"%-6s enqueued %d, delivered %d, dropped %d, retried %d, suppressed %d, latency p50 %d ms, p99 %d ms, max %d ms",
+					event.name, event.getEnqueued(), event.getSent(), event.getDrops(), event.getRetries(),
+					event.getSuppressed(), event.getLatency50thPercentile(), event.getLatency99thPercentile(),
+					event.getLatencyMax()));
+		}
+		System.out.println(String.format("total  delivered %d, dropped %d, pending %d",
+				delivered, dropped, slacker.getOutboxPending()));
+
+		StringBuilder replies = new StringBuilder();
+		for (Reply reply : Reply.values()) {
+			replies.append(String.format(", %s %d", reply.name().toLowerCase(), webhook.getCount(reply)));
+		}
+		System.out.println(String.format("webhook %d requests%s", webhook.getRequests(), replies));
+		System.out.println(String.format("status codes %s, network errors %d",
+				metrics.getStatusCodes(), metrics.getNetworkErrors()));
+		System.out.println("outbox " + baseFolder);
+	}
+
+	static IRuntimeManager newRuntimeManager(final IStoredSettings settings, final File baseFolder) {
+		InvocationHandler handler = new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object [] args) {
+				String name = method.getName();
+				if ("getSettings".equals(name)) {
+					return settings;
+				} else if ("getBaseFolder".equals(name)) {
+					return baseFolder;
+				} else if ("getFileOrFolder".equals(name)) {
+					String path = args.length == 1 ? (String) args[0] : settings.getString((String) args[0], (String) args[1]);
+					return new File(path.replace("${baseFolder}", baseFolder.getAbsolutePath()));
+				} else if ("toString".equals(name)) {
+					return "replay runtime manager";
+				}
+				throw new UnsupportedOperationException(name);
+			}
+		};
+		return (IRuntimeManager) Proxy.newProxyInstance(IRuntimeManager.class.getClassLoader(),
+				new Class<?> [] { IRuntimeManager.class }, handler);
+	}
+
+	private static int getInt(Map<String, String> options, String name, int defaultValue) {
+		String value = options.get(name);
+		return value == null ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	/**
+	 * Resolves ticket repositories and links without a running Gitblit.
+	 */
+	static class ReplayTicketHook extends SlackTicketHook {
+
+		ReplayTicketHook(Slacker slacker) {
+			super(slacker);
+		}
+
+		@Override
+		protected RepositoryModel getRepositoryModel(String repository) {
+			RepositoryModel model = new RepositoryModel(repository, "", "admin", new Date());
+			model.projectPath = "replay";
+			return model;
+		}
+
+		@Override
+		protected String getUrl(TicketModel ticket) {
+			return String.format("%s/tickets/%s/%d", slacker.getConfig().canonicalUrl, ticket.repository, ticket.number);
+		}
+	}
+}